@@ -0,0 +1,91 @@
+package de.tautenhahn.easydata;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Compares reading bean attributes by cached accessors with looking up and invoking the getter by reflection each
+ * time.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class BeanAccessBenchmark {
+
+    private static final Expression PATH = Expression.parse("person.address.city");
+
+    private AccessibleData data;
+
+    private Person person;
+
+    /**
+     * Bean with nested bean.
+     */
+    public static class Person {
+
+        private final Address address = new Address();
+
+        /**
+         * @return nested bean
+         */
+        public Address getAddress() {
+            return address;
+        }
+    }
+
+    /**
+     * Innermost bean.
+     */
+    public static class Address {
+
+        /**
+         * @return constant value
+         */
+        public String getCity() {
+            return "Gera";
+        }
+    }
+
+    /**
+     * Provides the bean.
+     */
+    @Setup
+    public void createData() {
+        person = new Person();
+        data = AccessibleData.byBean(Map.of("person", person));
+    }
+
+    /**
+     * Reads the nested value via cached accessors.
+     *
+     * @return value
+     */
+    @Benchmark
+    public Object cachedAccessor() {
+        return PATH.evaluate(data);
+    }
+
+    /**
+     * Reads the nested value the way it was done before, finding the method by name for each access.
+     *
+     * @return value
+     * @throws ReflectiveOperationException never
+     */
+    @Benchmark
+    public Object reflection() throws ReflectiveOperationException {
+        Object element = person;
+        for (String name : List.of("address", "city")) {
+            String upperName = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            Method method = element.getClass().getMethod("get" + upperName);
+            element = method.invoke(element);
+        }
+        return element;
+    }
+}
@@ -0,0 +1,114 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.tautenhahn.easydata.json.CompactJson;
+
+
+/**
+ * Compares Gson's maps with compact maps sharing their keys and records stored by columns, reading records with
+ * 20 fields, looking up each field and selecting and sorting by fields. Run with <code>-prof gc</code> to see the
+ * bytes allocated per load.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class CompactJsonBenchmark {
+
+    private static final int FIELDS = 20;
+
+    /**
+     * Which object model to use.
+     */
+    @Param({"gson", "compact"})
+    public String model;
+
+    private String json;
+
+    private List<?> records;
+
+    private String[] keys;
+
+    private CompiledTemplate template;
+
+    private AccessibleData data;
+
+    /**
+     * Creates JSON content with 20000 records and reads it.
+     *
+     * @throws IOException never
+     */
+    @Setup
+    public void prepare() throws IOException {
+        StringBuilder content = new StringBuilder("{\"records\": [");
+        for (int i = 0; i < 20_000; i++) {
+            content.append(i == 0 ? "{" : ",\n{");
+            for (int j = 0; j < FIELDS; j++) {
+                content.append(j == 0 ? "\"field" : ", \"field").append(j)
+                       .append(j % 2 == 0 ? "\": " + i * j : "\": \"value " + i + '"');
+            }
+            content.append('}');
+        }
+        json = content.append("]}").toString();
+        Map<?, ?> loaded = load();
+        records = (List<?>) loaded.get("records");
+        data = AccessibleData.byBean(loaded);
+        template = CompiledTemplate.compile(new StringReader("{@FOR val:records SELECT field4}{@=val}{@/FOR}"
+                + "{@FOR rec:records DESCENDING field2}{@=rec.field1}{@/FOR}"), '{', '@', '}');
+        keys = new String[FIELDS];
+        for (int j = 0; j < FIELDS; j++) {
+            keys[j] = new StringBuilder("field").append(j).toString();
+        }
+    }
+
+    /**
+     * Reads the whole content.
+     *
+     * @return the data
+     * @throws IOException never
+     */
+    @Benchmark
+    public Map<?, ?> load() throws IOException {
+        return "gson".equals(model) ? (Map<?, ?>) AccessibleData.byJsonContent(json).getData()
+                : CompactJson.load(new StringReader(json));
+    }
+
+    /**
+     * Looks up every field of every record with keys which are equal but not identical to the parsed ones.
+     *
+     * @return number of values found
+     */
+    @Benchmark
+    public int lookup() {
+        int result = 0;
+        for (Object rec : records) {
+            Map<?, ?> fields = (Map<?, ?>) rec;
+            for (String key : keys) {
+                if (fields.get(key) != null) {
+                    result++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Renders a template selecting one field and sorting by another.
+     *
+     * @throws IOException never
+     */
+    @Benchmark
+    public void selectAndSort() throws IOException {
+        template.render(data, Writer.nullWriter());
+    }
+}
@@ -0,0 +1,78 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Compares expanding a mail-merge like template by parsing it for each document with rendering a template
+ * which has been compiled once.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class CompiledTemplateBenchmark {
+
+    private String template;
+
+    private AccessibleData data;
+
+    private CompiledTemplate compiled;
+
+    /**
+     * Creates a letter template with some static text, a few values and a small loop.
+     *
+     * @throws IOException not expected
+     */
+    @Setup
+    public void createTemplate() throws IOException {
+        StringBuilder text = new StringBuilder(200);
+        text.append("(@DEFINE greeting(p))Dear (@=p.title) (@=p.name),(@/DEFINE)(@SKIP)\n");
+        for (int i = 0; i < 20; i++) {
+            text.append("Some static paragraph number ").append(i).append(" of the letter.\n");
+        }
+        text.append("(@greeting person)\n(@FOR item:person.orders)(@=item.id): (@=item.amount)(@DELIM), (@/FOR)\n");
+        template = text.toString();
+        List<Object> orders = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            orders.add(Map.of("id", "order" + i, "amount", Integer.toString(i * 10)));
+        }
+        data = AccessibleData.byBean(Map.of("person", Map.of("title", "Dr.", "name", "Mustermann", "orders", orders)));
+        compiled = CompiledTemplate.compile(new StringReader(template), '(', '@', ')');
+    }
+
+    /**
+     * Parses the template for each document.
+     *
+     * @return created document
+     * @throws IOException not expected
+     */
+    @Benchmark
+    public String parseEachTime() throws IOException {
+        StringWriter output = new StringWriter();
+        new DataIntoTemplate(data, '(', '@', ')').fillData(new StringReader(template), output);
+        return output.toString();
+    }
+
+    /**
+     * Renders the pre-compiled template.
+     *
+     * @return created document
+     * @throws IOException not expected
+     */
+    @Benchmark
+    public String renderCompiled() throws IOException {
+        StringWriter output = new StringWriter();
+        compiled.render(data, output);
+        return output.toString();
+    }
+}
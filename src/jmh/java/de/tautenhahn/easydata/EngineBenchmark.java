@@ -0,0 +1,81 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Renders a template consisting mostly of nested loops and conditions with the different engines.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class EngineBenchmark {
+
+    private static final Map<String, String> TEMPLATES = Map.of("loops", """
+            {@FOR row:rows}<tr>{@FOR col:row.cells}<td>{@IF col.flag}{@=col.value}{@ELSE}-{@/IF}</td>{@DELIM} {@/FOR}</tr>
+            {@/FOR}
+            """, "macros", """
+            {@DEFINE cell(_c)}<td>{@IF _c.flag}{@=_c.value}{@ELSE}-{@/IF}</td>{@/DEFINE}
+            {@FOR row:rows}<tr>{@FOR col:row.cells}{@cell col}{@DELIM} {@/FOR}</tr>
+            {@/FOR}
+            """);
+
+    /**
+     * How to execute the template.
+     */
+    @Param({"RESOLVERS", "INSTRUCTIONS", "GENERATED"})
+    public CompiledTemplate.Engine engine;
+
+    /**
+     * Whether the cells are rendered inside the loop or by calling a macro.
+     */
+    @Param({"loops", "macros"})
+    public String shape;
+
+    private CompiledTemplate template;
+
+    private AccessibleData data;
+
+    private final Writer output = Writer.nullWriter();
+
+    /**
+     * Creates data with 200 rows of 20 cells each and compiles the template.
+     *
+     * @throws IOException never
+     */
+    @Setup
+    public void prepare() throws IOException {
+        List<Object> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            List<Object> cells = new ArrayList<>();
+            for (int j = 0; j < 20; j++) {
+                cells.add(Map.of("flag", j % 3 != 0, "value", "v" + i + "/" + j));
+            }
+            rows.add(Map.of("cells", cells));
+        }
+        data = AccessibleData.byBean(Map.of("rows", rows));
+        template = CompiledTemplate.compile(new StringReader(TEMPLATES.get(shape)), '{', '@', '}');
+        template.setEngine(engine);
+    }
+
+    /**
+     * Renders the whole document.
+     *
+     * @throws IOException never
+     */
+    @Benchmark
+    public void render() throws IOException {
+        template.render(data, output);
+    }
+}
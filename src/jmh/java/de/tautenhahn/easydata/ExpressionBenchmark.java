@@ -0,0 +1,61 @@
+package de.tautenhahn.easydata;
+
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Compares evaluating value expressions from their text each time with evaluating pre-parsed expressions.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class ExpressionBenchmark {
+
+    /**
+     * Expression to evaluate.
+     */
+    @Param({"Address.City", "friends.${name}.city", "friends[name].distance", "SIZE(friends)", "\"literal\""})
+    public String text;
+
+    private AccessibleData data;
+
+    private Expression expression;
+
+    /**
+     * Provides data where the loop variable "name" is defined.
+     */
+    @Setup
+    public void createData() {
+        data = AccessibleData.byBean(Map.of("Address", Map.of("City", "Wolkenkuckuksheim"),
+                                            "friends", Map.of("Emil", Map.of("city", "Gera", "distance", "90"),
+                                                              "Oskar", Map.of("city", "Rom", "distance", "400"))));
+        data.define("name", "Emil");
+        expression = Expression.parse(text);
+    }
+
+    /**
+     * Parses and evaluates.
+     *
+     * @return value
+     */
+    @Benchmark
+    public Object byText() {
+        return data.get(text);
+    }
+
+    /**
+     * Evaluates only.
+     *
+     * @return value
+     */
+    @Benchmark
+    public Object preParsed() {
+        return expression.evaluate(data);
+    }
+}
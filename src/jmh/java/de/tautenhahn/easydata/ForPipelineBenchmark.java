@@ -0,0 +1,63 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Iterates 200000 records in a FOR tag selecting an attribute, skipping repeated values and sorting.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class ForPipelineBenchmark {
+
+    /**
+     * Operations of the FOR tag.
+     */
+    @Param({"SELECT city UNIQUE", "SELECT city UNIQUE ASCENDING", "DESCENDING zip"})
+    public String operations;
+
+    private AccessibleData data;
+
+    private CompiledTemplate template;
+
+    /**
+     * Creates the records and the template.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @Setup
+    public void prepare() throws IOException {
+        Random random = new Random(1);
+        List<Object> records = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            int zip = random.nextInt(5000);
+            records.add(Map.of("city", "City " + zip / 10, "zip", Integer.toString(10_000 + zip)));
+        }
+        data = AccessibleData.byBean(Map.of("records", records));
+        template = CompiledTemplate.compile(new StringReader("{@FOR elem:records " + operations + "}x{@/FOR}"),
+                                            '{', '@', '}');
+    }
+
+    /**
+     * Renders the loop.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @Benchmark
+    public void loop() throws IOException {
+        template.render(data, Writer.nullWriter());
+    }
+}
@@ -0,0 +1,90 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import de.tautenhahn.easydata.json.MappedJson;
+
+
+/**
+ * Measures loading a big JSON file and rendering a template which uses only a small part of it.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class MappedJsonBenchmark {
+
+    private Path file;
+
+    private CompiledTemplate template;
+
+    /**
+     * Writes a JSON file with 50000 records and compiles a template addressing a few values.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Setup
+    public void prepare() throws IOException {
+        file = Files.createTempFile("benchmark", ".json");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("{\"title\": \"Export\", \"records\": [");
+            for (int i = 0; i < 50_000; i++) {
+                out.write(i == 0 ? "" : ",\n");
+                out.write("{\"id\": " + i + ", \"name\": \"Record number " + i
+                          + "\", \"tags\": [\"a\", \"b\", \"c\"], \"address\": {\"city\": \"Köln\", \"zip\": \"50667\"}}");
+            }
+            out.write("], \"summary\": {\"count\": 50000}}");
+        }
+        template = CompiledTemplate.compile(new StringReader(
+                "{@=title}: {@=records.17.name} in {@=records.4711.address.city}, {@=summary.count}"), '{', '@', '}');
+    }
+
+    /**
+     * Removes the JSON file.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @TearDown
+    public void cleanup() throws IOException {
+        Files.delete(file);
+    }
+
+    /**
+     * Parses the whole file with Gson.
+     *
+     * @return rendered text
+     * @throws IOException in case of file system problems
+     */
+    @Benchmark
+    public String parsed() throws IOException {
+        return render(AccessibleData.byJsonPath(file.toString()));
+    }
+
+    /**
+     * Maps the file and decodes only the values used.
+     *
+     * @return rendered text
+     * @throws IOException in case of file system problems
+     */
+    @Benchmark
+    public String mapped() throws IOException {
+        return render(AccessibleData.byBean(MappedJson.load(file)));
+    }
+
+    private String render(AccessibleData data) throws IOException {
+        StringWriter result = new StringWriter();
+        template.render(data, result);
+        return result.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package de.tautenhahn.easydata;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.tautenhahn.easydata.docx.DocxAdapter;
+
+
+/**
+ * Measures writing rendered documents into a stream. Templates consisting mostly of static text profit from
+ * writing that text pre-encoded.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class OutputBenchmark {
+
+    private static final String TEMPLATE = """
+            {@FOR person:persons}Sehr geehrte Damen und Herren,
+            hiermit bestätigen wir Ihnen, dass {@=person.name} aus {@=person.city} an unserer Veranstaltung
+            teilgenommen hat. Für Rückfragen stehen wir Ihnen gerne zur Verfügung. Mit freundlichen Grüßen
+
+            {@/FOR}""";
+
+    private final OutputStream target = OutputStream.nullOutputStream();
+
+    private CompiledTemplate template;
+
+    private AccessibleData data;
+
+    private byte[] docxTemplate;
+
+    private AccessibleData docxData;
+
+    /**
+     * Creates data for 1000 persons, compiles the text template and reads the DOCX example with its data.
+     *
+     * @throws IOException never
+     */
+    @Setup
+    public void prepare() throws IOException {
+        List<Object> persons = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            persons.add(Map.of("name", "Person " + i, "city", "Köln"));
+        }
+        data = AccessibleData.byBean(Map.of("persons", persons));
+        template = CompiledTemplate.compile(new StringReader(TEMPLATE), '{', '@', '}');
+        try (InputStream ins = Objects.requireNonNull(getClass().getResourceAsStream("/example.docx"))) {
+            docxTemplate = ins.readAllBytes();
+        }
+        try (Reader reader = new InputStreamReader(Objects.requireNonNull(getClass().getResourceAsStream("/data.json")),
+                                                   StandardCharsets.UTF_8)) {
+            docxData = AccessibleData.byJsonReader(reader);
+        }
+    }
+
+    /**
+     * Renders into a writer which encodes all the text.
+     *
+     * @throws IOException never
+     */
+    @Benchmark
+    public void textToWriter() throws IOException {
+        try (Writer writer = new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8)) {
+            template.render(data, writer);
+        }
+    }
+
+    /**
+     * Renders into a stream, static text is written pre-encoded.
+     *
+     * @throws IOException never
+     */
+    @Benchmark
+    public void textToStream() throws IOException {
+        template.render(data, target);
+    }
+
+    /**
+     * Expands a DOCX template.
+     *
+     * @throws IOException never
+     */
+    @Benchmark
+    public void docx() throws IOException {
+        new DocxAdapter(docxData).convert(new ByteArrayInputStream(docxTemplate), OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,80 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import de.tautenhahn.easydata.json.ParallelJsonLoader;
+
+
+/**
+ * Measures how reading a big JSON array scales with the number of threads parsing it.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class ParallelJsonBenchmark {
+
+    /**
+     * Number of threads parsing.
+     */
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path file;
+
+    private ForkJoinPool pool; // NOPMD threads are what we measure
+
+    /**
+     * Writes a JSON array with 200000 records and creates the pool.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Setup
+    public void prepare() throws IOException {
+        file = Files.createTempFile("benchmark", ".json");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("[");
+            for (int i = 0; i < 200_000; i++) {
+                out.write(i == 0 ? "" : ",\n");
+                out.write("{\"id\": " + i + ", \"name\": \"Record number " + i + "\", \"value\": " + i * 0.5
+                          + ", \"tags\": [\"a\", \"b\"], \"address\": {\"city\": \"Köln\", \"zip\": \"50667\"}}");
+            }
+            out.write("]");
+        }
+        pool = new ForkJoinPool(threads); // NOPMD see above
+    }
+
+    /**
+     * Removes the JSON file and stops the pool.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @TearDown
+    public void cleanup() throws IOException {
+        pool.shutdown(); // NOPMD see above
+        Files.delete(file);
+    }
+
+    /**
+     * Reads the whole array.
+     *
+     * @return the records
+     * @throws IOException in case of file system problems
+     */
+    @Benchmark
+    public List<Object> load() throws IOException {
+        return ParallelJsonLoader.load(file, pool);
+    }
+}
@@ -0,0 +1,90 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import de.tautenhahn.easydata.json.ProjectingJsonLoader;
+
+
+/**
+ * Compares rendering a template which shows a small part of a big JSON file after loading the whole file with
+ * loading only the paths the template reads.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+    private Path json;
+
+    private CompiledTemplate template;
+
+    private Set<String> paths;
+
+    /**
+     * Writes a JSON file with 50000 records and compiles a template showing two members of each.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Setup
+    public void prepare() throws IOException {
+        json = Files.createTempFile("benchmark", ".json");
+        try (Writer out = Files.newBufferedWriter(json, StandardCharsets.UTF_8)) {
+            out.write("{\"title\": \"Export\", \"records\": [");
+            for (int i = 0; i < 50_000; i++) {
+                out.write(i == 0 ? "" : ",\n");
+                out.write("{\"id\": " + i + ", \"name\": \"Record number " + i + "\", \"value\": " + i * 0.5
+                          + ", \"tags\": [\"a\", \"b\", \"c\"], \"address\": {\"city\": \"Köln\", \"zip\": \"50667\","
+                          + " \"street\": \"Domkloster " + i + "\"}, \"description\": \"" + "text ".repeat(20) + "\"}");
+            }
+            out.write("]}");
+        }
+        template = CompiledTemplate.compile(new StringReader("{@=title}\n{@FOR rec:records}{@=rec.id}: {@=rec.name}\n"
+                                                             + "{@/FOR}"), '{', '@', '}');
+        paths = template.getReferencedPaths().orElseThrow();
+    }
+
+    /**
+     * Removes the file.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @TearDown
+    public void cleanup() throws IOException {
+        Files.delete(json);
+    }
+
+    /**
+     * Loads the whole file.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Benchmark
+    public void complete() throws IOException {
+        template.render(AccessibleData.byJsonPath(json.toString()), Writer.nullWriter());
+    }
+
+    /**
+     * Loads the paths read by the template only.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Benchmark
+    public void projected() throws IOException {
+        try (Reader reader = Files.newBufferedReader(json, StandardCharsets.UTF_8)) {
+            template.render(AccessibleData.byBean(ProjectingJsonLoader.load(reader, paths)), Writer.nullWriter());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package de.tautenhahn.easydata;
+
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Defines, reads and removes a loop variable as done for each iteration of a FOR tag. Compares the slot-indexed
+ * scopes with the formerly used StackMap.
+ *
+ * @author TT
+ */
+@State(Scope.Thread)
+public class ScopeBenchmark {
+
+    private static final String NAME = "element";
+
+    private static final int SLOT = RenderContext.slotOf(NAME);
+
+    private final RenderContext context = new RenderContext();
+
+    private final Map<String, Object> stackMap = new StackMap<>();
+
+    private final Object value = new Object();
+
+    /**
+     * Uses slots.
+     *
+     * @return read value
+     */
+    @Benchmark
+    public Object slots() {
+        context.define(SLOT, value);
+        Object result = context.isDefined(SLOT) ? context.getDefined(SLOT) : null;
+        context.undefine(SLOT);
+        return result;
+    }
+
+    /**
+     * Uses names.
+     *
+     * @return read value
+     */
+    @Benchmark
+    public Object names() {
+        stackMap.put(NAME, value);
+        Object result = stackMap.containsKey(NAME) ? stackMap.get(NAME) : null;
+        stackMap.remove(NAME);
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import de.tautenhahn.easydata.json.Snapshot;
+
+
+/**
+ * Compares loading data from JSON with loading it from a snapshot.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    private Path json;
+
+    private Path snapshot;
+
+    /**
+     * Writes a JSON file with 50000 records and a snapshot of it.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @Setup
+    public void prepare() throws IOException {
+        json = Files.createTempFile("benchmark", ".json");
+        snapshot = Files.createTempFile("benchmark", ".snapshot");
+        try (Writer out = Files.newBufferedWriter(json, StandardCharsets.UTF_8)) {
+            out.write("{\"title\": \"Export\", \"records\": [");
+            for (int i = 0; i < 50_000; i++) {
+                out.write(i == 0 ? "" : ",\n");
+                out.write("{\"id\": " + i + ", \"name\": \"Record number " + i + "\", \"value\": " + i * 0.5
+                          + ", \"tags\": [\"a\", \"b\"], \"address\": {\"city\": \"Köln\", \"zip\": \"50667\"}}");
+            }
+            out.write("]}");
+        }
+        Snapshot.write((Map<?, ?>) AccessibleData.byJsonPath(json.toString()).getData(), snapshot);
+    }
+
+    /**
+     * Removes the files.
+     *
+     * @throws IOException in case of file system problems
+     */
+    @TearDown
+    public void cleanup() throws IOException {
+        Files.delete(json);
+        Files.delete(snapshot);
+    }
+
+    /**
+     * Parses the JSON file.
+     *
+     * @return the data
+     * @throws IOException in case of file system problems
+     */
+    @Benchmark
+    public AccessibleData fromJson() throws IOException {
+        return AccessibleData.byJsonPath(json.toString());
+    }
+
+    /**
+     * Reads the snapshot.
+     *
+     * @return the data
+     * @throws IOException in case of file system problems
+     */
+    @Benchmark
+    public AccessibleData fromSnapshot() throws IOException {
+        return AccessibleData.byBean(Snapshot.read(snapshot));
+    }
+}
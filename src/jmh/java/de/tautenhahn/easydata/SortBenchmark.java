@@ -0,0 +1,100 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Sorts 200000 records in a FOR tag, by an attribute or by the selected values themselves. For comparison, the
+ * records are sorted by a comparator which reads the attribute and compares as before for each comparison.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+    /**
+     * Sort order.
+     */
+    @Param({"ASCENDING", "DESCENDING"})
+    public String order;
+
+    /**
+     * Type of the values to sort by.
+     */
+    @Param({"number", "numeric", "text"})
+    public String key;
+
+    private AccessibleData data;
+
+    private List<Object> records;
+
+    private CompiledTemplate byAttribute;
+
+    private CompiledTemplate byValue;
+
+    /**
+     * Creates the records and templates.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @Setup
+    public void prepare() throws IOException {
+        Random random = new Random(1);
+        records = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(1_000_000);
+            records.add(Map.of("number", Double.valueOf(value), "numeric", Integer.toString(value), "text",
+                               "name " + value));
+        }
+        data = AccessibleData.byBean(Map.of("records", records));
+        byAttribute = CompiledTemplate.compile(new StringReader("{@FOR rec:records " + order + " " + key + "}{@/FOR}"),
+                                               '{', '@', '}');
+        byValue = CompiledTemplate.compile(new StringReader("{@FOR val:records SELECT " + key + " " + order
+                                                            + "}{@/FOR}"), '{', '@', '}');
+    }
+
+    /**
+     * Sorts the records by an attribute.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @Benchmark
+    public void attribute() throws IOException {
+        byAttribute.render(data, Writer.nullWriter());
+    }
+
+    /**
+     * Sorts the selected values.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @Benchmark
+    public void selected() throws IOException {
+        byValue.render(data, Writer.nullWriter());
+    }
+
+    /**
+     * Reads the attribute for each comparison.
+     *
+     * @return sorted records
+     */
+    @Benchmark
+    public List<Object> perComparison() {
+        List<Object> result = new ArrayList<>(records);
+        boolean ascending = "ASCENDING".equals(order);
+        result.sort((a, b) -> AccessibleData.compare(((Map<?, ?>) a).get(key), ((Map<?, ?>) b).get(key), ascending));
+        return result;
+    }
+}
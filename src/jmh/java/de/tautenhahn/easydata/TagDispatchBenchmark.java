@@ -0,0 +1,63 @@
+package de.tautenhahn.easydata;
+
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Measures finding the resolver for a tag when many macros are registered.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class TagDispatchBenchmark {
+
+    private static final Token INSERT_VALUE = new Token("{@=person.address.city}", 1, 0);
+
+    private static final Token MACRO_CALL = new Token("{@macro17 person.name}", 1, 0);
+
+    /**
+     * Number of registered macros.
+     */
+    @Param({"20", "200", "2000"})
+    public int macros;
+
+    private ResolverFactory factory;
+
+    /**
+     * Registers the macros.
+     */
+    @Setup
+    public void createFactory() {
+        factory = new EasyTagFactory('{', '@', '}');
+        for (int i = 0; i < macros; i++) {
+            factory.register(Pattern.compile("macro" + i + " +([^ ]+)"), m -> EasyTagFactory.IDENTITY);
+        }
+    }
+
+    /**
+     * Gets resolver for the most frequent tag.
+     *
+     * @return resolver
+     */
+    @Benchmark
+    public Resolver insertValue() {
+        return factory.getResolver(INSERT_VALUE, Collections.emptyIterator());
+    }
+
+    /**
+     * Gets resolver for a macro call.
+     *
+     * @return resolver
+     */
+    @Benchmark
+    public Resolver macroCall() {
+        return factory.getResolver(MACRO_CALL, Collections.emptyIterator());
+    }
+}
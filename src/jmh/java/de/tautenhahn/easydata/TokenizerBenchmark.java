@@ -0,0 +1,83 @@
+package de.tautenhahn.easydata;
+
+import java.io.StringReader;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Tokenizes a large single-line XML document like the main part of a word document. Compares the streaming
+ * tokenizer with matching a regular expression against each complete line, as it was done before.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+
+    private static final Pattern LINE_PATTERN = Pattern.compile(
+            "([^(]+)|(\\(@(([^()]|(\\([^@].*?\\)))*)\\))|(\\()", Pattern.DOTALL);
+
+    /**
+     * Number of paragraphs in the document.
+     */
+    @Param({"1000", "20000"})
+    public int paragraphs;
+
+    private String document;
+
+    /**
+     * Creates the document.
+     */
+    @Setup
+    public void createDocument() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><w:document><w:body>");
+        for (int i = 0; i < paragraphs; i++) {
+            xml.append("<w:p><w:r><w:rPr><w:b/></w:rPr><w:t xml:space=\"preserve\">Paragraph (")
+                    .append(i)
+                    .append(") of text with value </w:t></w:r><w:r><w:t>(@=person.address[city])</w:t></w:r></w:p>");
+        }
+        document = xml.append("</w:body></w:document>").toString();
+    }
+
+    /**
+     * Reads the document in chunks.
+     *
+     * @return number of tokens
+     */
+    @Benchmark
+    public int streaming() {
+        int result = 0;
+        Tokenizer tokens = new Tokenizer(new StringReader(document), '(', '@', ')');
+        while (tokens.hasNext()) {
+            tokens.next();
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Reads each line completely and applies the regular expression.
+     *
+     * @return number of tokens
+     */
+    @Benchmark
+    public int regexPerLine() {
+        int result = 0;
+        try (Scanner scanner = new Scanner(new StringReader(document)).useDelimiter("\n")) {
+            while (scanner.hasNext()) {
+                Matcher matcher = LINE_PATTERN.matcher(scanner.next() + "\n");
+                while (matcher.find()) {
+                    result++;
+                }
+            }
+        }
+        return result;
+    }
+}
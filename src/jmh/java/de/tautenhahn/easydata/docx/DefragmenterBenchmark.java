@@ -0,0 +1,66 @@
+package de.tautenhahn.easydata.docx;
+
+import java.io.IOException;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+
+/**
+ * Reorganizes a paragraph with long special tags split into runs of one character each, as found in documents
+ * with tracked formatting changes.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class DefragmenterBenchmark {
+
+    private static final String TAG = "(@=" + "x".repeat(250) + ") ";
+
+    /**
+     * Number of runs in the paragraph.
+     */
+    @Param({"1000", "10000"})
+    public int runs;
+
+    private XWPFDocument document;
+
+    private XWPFParagraph paragraph;
+
+    /**
+     * Creates a new paragraph because reorganizing changes it.
+     */
+    @Setup(Level.Invocation)
+    public void prepare() {
+        document = new XWPFDocument();
+        paragraph = document.createParagraph();
+        for (int i = 0; i < runs; i++) {
+            paragraph.createRun().setText(String.valueOf(TAG.charAt(i % TAG.length())));
+        }
+    }
+
+    /**
+     * Releases the document.
+     *
+     * @throws IOException never
+     */
+    @TearDown(Level.Invocation)
+    public void cleanup() throws IOException {
+        document.close();
+    }
+
+    /**
+     * Collects each tag into one run.
+     */
+    @Benchmark
+    public void reorganize() {
+        new DocxDefragmenter().reorganizeParagraph(paragraph);
+    }
+}
@@ -0,0 +1,110 @@
+package de.tautenhahn.easydata.docx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.tautenhahn.easydata.AccessibleData;
+
+
+/**
+ * Converts a DOCX template containing 24 MB of embedded images, reading the template each time or once. For
+ * comparison, all entries of the template are inflated and deflated again, as done before unchanged entries were
+ * copied as they are.
+ *
+ * @author TT
+ */
+@State(Scope.Benchmark)
+public class DocxBenchmark {
+
+    private byte[] template;
+
+    private DocxAdapter adapter;
+
+    private AccessibleData data;
+
+    private PreparedDocxTemplate preparedTemplate;
+
+    /**
+     * Adds incompressible images to the example template.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @Setup
+    public void prepare() throws IOException {
+        Random random = new Random(1);
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream res = Objects.requireNonNull(getClass().getResourceAsStream("/example.docx"));
+             ZipInputStream ins = new ZipInputStream(res);
+             ZipOutputStream out = new ZipOutputStream(result)) {
+            for (ZipEntry entry = ins.getNextEntry(); entry != null; entry = ins.getNextEntry()) {
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                ins.transferTo(out);
+            }
+            for (int i = 0; i < 3; i++) {
+                byte[] image = new byte[8 * 1024 * 1024];
+                random.nextBytes(image);
+                out.putNextEntry(new ZipEntry("word/media/photo" + i + ".jpg"));
+                out.write(image);
+            }
+        }
+        template = result.toByteArray();
+        try (Reader reader = new InputStreamReader(Objects.requireNonNull(getClass().getResourceAsStream("/data.json")),
+                                                   StandardCharsets.UTF_8)) {
+            data = AccessibleData.byJsonReader(reader);
+        }
+        adapter = new DocxAdapter(data);
+        preparedTemplate = PreparedDocxTemplate.prepare(new ByteArrayInputStream(template));
+    }
+
+    /**
+     * Creates the document.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @Benchmark
+    public void convert() throws IOException {
+        adapter.convert(new ByteArrayInputStream(template), OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Creates the document from the template read before.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @Benchmark
+    public void prepared() throws IOException {
+        preparedTemplate.render(data, OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Inflates and deflates all entries without expanding anything.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @Benchmark
+    public void inflateAndDeflate() throws IOException {
+        try (ZipInputStream ins = new ZipInputStream(new ByteArrayInputStream(template));
+             ZipOutputStream out = new ZipOutputStream(OutputStream.nullOutputStream())) {
+            for (ZipEntry entry = ins.getNextEntry(); entry != null; entry = ins.getNextEntry()) {
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                ins.transferTo(out);
+            }
+        }
+    }
+}
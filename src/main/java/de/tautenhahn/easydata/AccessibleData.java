@@ -1,59 +1,65 @@
 package de.tautenhahn.easydata;
 
-import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.IntFunction;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import com.google.gson.Gson;
 
+import de.tautenhahn.easydata.json.StreamingJsonLoader;
+
 
 /**
  * Wraps complete data access and resolves any requests for data elements.<br>
  * First idea was to wrap all data elements into separate access objects of one base type but that looked ugly
  * because the needed types are different after all. <br>
  * Error reporting uses only the given path values, information about where those values came from may be
- * added by the caller.
+ * added by the caller. <br>
+ * Values defined while resolving a template are held in a separate context. To render the same data in
+ * several threads at once, give each thread its own object obtained by {@link #forRendering()}.
  *
  * @author TT
  */
-public class AccessibleData {
-
-    private static final Pattern DEREF = Pattern.compile("\\$\\{([^}]+)}");
+public class AccessibleData implements Cloneable {
 
-    private static final Pattern SIZE = Pattern.compile("SIZE\\(([^)]+)\\)");
+    public static final String VALUE_READ_MISSES = "VALUE_READ_MISSES";
 
-    private static final Pattern SIZE2 = Pattern.compile("SIZE\\{([^}]+)\\}");
+    private static final Pattern NUMERIC = Pattern.compile("-?\\d+(\\.\\d+)?");
 
-    private static final Pattern LITERAL = Pattern.compile("\"[^\"]*\"|'[^']*'|#[^#]*#");
+    private static final ClassValue<Boolean> OVERRIDES_GET_STRING = new ClassValue<>() {
 
-    public static final String VALUE_READ_MISSES = "VALUE_READ_MISSES";
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("getString", String.class).getDeclaringClass() != AccessibleData.class;
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("cannot happen because method is public", e);
+            }
+        }
+    };
 
     private final Object data;
 
-    private final Map<String, Object> additionalValues = new StackMap<>();
+    private final boolean overridesGetString = OVERRIDES_GET_STRING.get(getClass());
 
-    private final Map<String, String> replacements = new HashMap<>();
+    private RenderContext context = new RenderContext();
 
-    protected final List<BiFunction<Object, String, Object>> formatters = new ArrayList<>();
+    protected List<BiFunction<Object, String, Object>> formatters = new ArrayList<>();
 
     private boolean throwOnValueReadMiss;
 
+    private int sortBufferSize = Integer.MAX_VALUE;
+
     /**
      * Defines how to iterate over a complex type.
      */
@@ -116,6 +122,19 @@ public class AccessibleData {
         return new AccessibleData(new Gson().fromJson(data, Map.class));
     }
 
+    /**
+     * Returns new instance wrapping data specified by JSON reader where one big array is read only while a FOR tag
+     * iterates it. Such an array can be iterated only once, see {@link StreamingJsonLoader}.
+     *
+     * @param data          JSON object, must stay open until the template has been rendered
+     * @param streamedArray dot separated keys leading from the root object to the array
+     * @return new instance
+     * @throws IOException in case of streaming problems
+     */
+    public static AccessibleData byJsonStream(Reader data, String streamedArray) throws IOException {
+        return new AccessibleData(StreamingJsonLoader.load(data, streamedArray));
+    }
+
     /**
      * Creates new instance wrapping a Map or Java Bean.
      *
@@ -133,9 +152,29 @@ public class AccessibleData {
     protected AccessibleData(AccessibleData original) {
         data = original.data;
         throwOnValueReadMiss = original.throwOnValueReadMiss;
+        sortBufferSize = original.sortBufferSize;
         formatters.addAll(original.formatters);
     }
 
+    /**
+     * Returns a new object sharing data and settings with this one but having its own context for the values
+     * defined while resolving a template. That context starts with copies of the values and replacements defined
+     * in this object, recorded read misses are not copied. The formatters are copied as well, so adding a
+     * formatter to one object does not affect the other. This object must not be changed while being copied.
+     *
+     * @return object of same class as this one, to be used by one thread at a time
+     */
+    public AccessibleData forRendering() {
+        try {
+            AccessibleData result = (AccessibleData) clone();
+            result.context = context.copy();
+            result.formatters = new ArrayList<>(formatters);
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("cannot happen because class implements Cloneable", e);
+        }
+    }
+
     /**
      * Adds a formatter to be used by the {@link #getString(String)} method.
      *
@@ -148,50 +187,76 @@ public class AccessibleData {
     }
 
     /**
-     * @param attrName dot notation and literals supported
+     * Parses the expression and evaluates it. Use {@link Expression#parse(String)} instead if the same expression
+     * is evaluated several times. Templates evaluate their pre-parsed expressions without calling this method, so
+     * it cannot be overridden. Override {@link #getString(String)} or {@link #sanitize(String)} to change
+     * inserted values.
+     *
+     * @param attrName dot notation and literals supported, see {@link Expression}
      * @return the attribute of specified name, of whatever type. May return null if the attribute does not
      * exist but parent object does. Accepts constants if surrounded by quotes.
      * @throws IllegalArgumentException in case an intermediate object is null or primitive.
      */
-    public Object get(String attrName) {
-        if ("NULL".equals(attrName)) {
-            return null;
-        }
-        if ("true".equalsIgnoreCase(attrName)) {
-            return Boolean.TRUE;
-        }
-        if ("false".equalsIgnoreCase(attrName)) {
-            return Boolean.FALSE;
-        }
-        if (LITERAL.matcher(attrName).matches()) {
-            return attrName.substring(1, attrName.length() - 1);
-        }
-        if (attrName.matches("\\d+")) {
-            return Integer.valueOf(attrName);
+    public final Object get(String attrName) {
+        return Expression.parse(attrName).evaluate(this);
+    }
+
+    /**
+     * Returns the value addressed by an already split attribute path. The first element may be a defined value.
+     *
+     * @param path attribute names
+     * @return addressed value
+     */
+    Object getByPath(String... path) {
+        return getByPath(RenderContext.existingSlotOf(path[0]), path);
+    }
+
+    /**
+     * Same as {@link #getByPath(String...)} with the slot of the first element already looked up.
+     *
+     * @param rootSlot slot of path[0] as defined value
+     * @param path     attribute names
+     * @return addressed value
+     */
+    Object getByPath(int rootSlot, String... path) {
+        if (context.isDefined(rootSlot)) {
+            return get(path, 1, context.getDefined(rootSlot));
         }
-        for (Pattern p : new Pattern[]{SIZE, SIZE2}) {
-            Matcher m = p.matcher(attrName);
-            if (m.matches()) {
-                return getCollection(m.group(1), ListMode.DEFAULT).size();
-            }
+        if (context.isDefined(path[0])) {
+            return get(path, 1, context.getDefined(path[0]));
         }
-
-        String attr = resolveInnerExpressions(attrName);
-        String[] path = attr.split("\\.");
-        return get(path, 0, additionalValues.containsKey(path[0]) ? additionalValues : data);
+        return get(path, 0, data);
     }
 
     /**
-     * Same as {@link #get(String)} but returns String and throws Exception if target is complex.
+     * Same as {@link #get(String)} but returns String and throws Exception if target is complex. This is the method
+     * to override for changing inserted values. If a subclass overrides it, templates call it with the text of
+     * their expressions instead of evaluating the pre-parsed expressions directly.
      *
      * @param attrName see {@link #get(String)}
      * @return string value
      */
     public String getString(String attrName) {
+        return resolveString(Expression.parse(attrName));
+    }
+
+    /**
+     * Same as {@link #getString(String)} with pre-parsed expression. Calls {@link #getString(String)} if a subclass
+     * overrides that method.
+     *
+     * @param expression specifies the value
+     * @return string value
+     */
+    public final String getString(Expression expression) {
+        return overridesGetString ? getString(expression.toString()) : resolveString(expression);
+    }
+
+    private String resolveString(Expression expression) {
+        String attrName = expression.toString();
         if (VALUE_READ_MISSES.equals(attrName)) {
-            return Optional.ofNullable(additionalValues.get(attrName)).map(Object::toString).orElse("");
+            return context.getValueReadMisses().isEmpty() ? "" : context.getValueReadMisses().toString();
         }
-        Object result = get(attrName);
+        Object result = expression.evaluate(this);
         if (result != null && (result instanceof Map || result instanceof List || result.getClass().isArray())) {
             throw new ResolverException("expected String but " + attrName + " is of type "
                     + result.getClass().getName());
@@ -214,7 +279,7 @@ public class AccessibleData {
 
     private String applyReplacements(String value) {
         String result = value;
-        for (Map.Entry<String, String> entry : replacements.entrySet()) {
+        for (Map.Entry<String, String> entry : context.getReplacements().entrySet()) {
             result = result.replace(entry.getKey(), entry.getValue());
         }
         return result;
@@ -228,12 +293,36 @@ public class AccessibleData {
      * @return new collection
      */
     public Collection<Object> map(Collection<Object> original, String attrName) {
-        return original.stream().map(o -> get(attrName.split("\\."), 0, o)).collect(Collectors.toList());
+        List<Object> result = new ArrayList<>();
+        mapByPath(original.iterator(), attrName.split("\\.")).forEachRemaining(result::add);
+        return result;
     }
 
     /**
-     * Returns a list of sorted elements. This method calls {@link #get(String[], int, Object)} too frequently,
-     * optimize in case of performance problems.
+     * Same as {@link #map(Collection, String)} with already split attribute path, each element is mapped only when
+     * it is requested.
+     *
+     * @param original input data
+     * @param path     attribute to select
+     * @return iterator over the selected attributes
+     */
+    Iterator<Object> mapByPath(Iterator<Object> original, String... path) {
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return original.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return get(path, 0, original.next());
+            }
+        };
+    }
+
+    /**
+     * Returns a list of sorted elements. The attribute to sort by is read once for each element.
      *
      * @param original  content to sort
      * @param attrName  specifies attribute to sort by
@@ -241,14 +330,27 @@ public class AccessibleData {
      * @return sorted list
      */
     public List<Object> sort(Collection<Object> original, String attrName, boolean ascending) {
-        List<Object> result = new ArrayList<>(original);
-        if (attrName == null) {
-            result.sort((a, b) -> compare(a, b, ascending));
-        } else {
-            String[] path = attrName.split("\\.");
-            result.sort((a, b) -> compare(get(path, 0, a), get(path, 0, b), ascending));
-        }
-        return result;
+        return sortByPath(original, attrName == null ? null : attrName.split("\\."), ascending);
+    }
+
+    /**
+     * Same as {@link #sort(Collection, String, boolean)} with already split attribute path.
+     *
+     * @param original  content to sort
+     * @param path      specifies attribute to sort by, null to sort the elements themselves
+     * @param ascending specifies order
+     * @return sorted list
+     */
+    List<Object> sortByPath(Collection<Object> original, String[] path, boolean ascending) {
+        return KeySort.sort(original, getAttributeReader(path), ascending);
+    }
+
+    /**
+     * @param path attribute names, null to address the element itself
+     * @return function reading the addressed attribute from an element
+     */
+    Function<Object, Object> getAttributeReader(String... path) {
+        return path == null ? Function.identity() : e -> get(path, 0, e);
     }
 
     /**
@@ -258,17 +360,51 @@ public class AccessibleData {
      * @param value must be of some supported type.
      */
     public void define(String name, Object value) {
-        additionalValues.put(name, value);
+        context.define(name, value);
+    }
+
+    /**
+     * Same as {@link #define(String, Object)} for a name already resolved to its slot.
+     *
+     * @param slot  see {@link RenderContext#slotOf(String)}
+     * @param value must be of some supported type.
+     */
+    void define(int slot, Object value) {
+        context.define(slot, value);
     }
 
     /**
      * Undoes {@link #define(String, Object)}. The value associated by the key before last define call (if any)
-     * is restored.
+     * is restored. Undefining {@link #VALUE_READ_MISSES} forgets all recorded misses.
      *
      * @param name specifies the attribute to remove
      */
     public void undefine(String name) {
-        additionalValues.remove(name);
+        if (VALUE_READ_MISSES.equals(name)) {
+            context.getValueReadMisses().clear();
+            return;
+        }
+        context.undefine(name);
+    }
+
+    /**
+     * Same as {@link #undefine(String)} for a name already resolved to its slot.
+     *
+     * @param slot see {@link RenderContext#slotOf(String)}
+     */
+    void undefine(int slot) {
+        if (slot == RenderContext.VALUE_READ_MISSES_SLOT) {
+            context.getValueReadMisses().clear();
+            return;
+        }
+        context.undefine(slot);
+    }
+
+    /**
+     * @return copy of the messages about values which could not be read, see {@link #VALUE_READ_MISSES}
+     */
+    List<String> getValueReadMisses() {
+        return List.copyOf(context.getValueReadMisses());
     }
 
     /**
@@ -281,14 +417,14 @@ public class AccessibleData {
      * @param value replacement value
      */
     public void defineReplacement(String key, String value) {
-        replacements.put(key, value);
+        context.getReplacements().put(key, value);
     }
 
     /**
      * Undefines all replacements from {@link #defineReplacement(String, String)}
      */
     public void clearReplacements() {
-        replacements.clear();
+        context.getReplacements().clear();
     }
 
     /**
@@ -339,21 +475,17 @@ public class AccessibleData {
     }
 
     private Object callGetMethod(String[] path, int alreadyResolved, Object element) {
-        String attrName = path[alreadyResolved];
+        Function<Object, Object> accessor = BeanAccess.of(element.getClass()).getAccessor(path[alreadyResolved]);
         try {
-            String upperName = Character.toUpperCase(attrName.charAt(0)) + attrName.substring(1);
-            Method method;
-            try {
-                method = element.getClass().getMethod("get" + upperName);
-            } catch (NoSuchMethodException e) {
-                method = element.getClass().getMethod("is" + upperName);
+            if (accessor != null) {
+                return accessor.apply(element);
             }
-            return method.invoke(element);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException |
-                 NoSuchMethodException e) {
-            recordValueReadMiss(path, alreadyResolved, element.getClass().getSimpleName());
-            return null;
+        } catch (RuntimeException e) // NOPMD same handling needed as for missing accessor
+        {
+            // empty on purpose
         }
+        recordValueReadMiss(path, alreadyResolved, element.getClass().getSimpleName());
+        return null;
     }
 
     /**
@@ -376,19 +508,12 @@ public class AccessibleData {
         return a.toString().compareTo(b.toString()) * direction;
     }
 
-    private static boolean isNumericString(Object value) {
-        return value instanceof String && ((String) value).matches("-?\\d+(\\.\\d+)?");
-    }
-
-    private String resolveInnerExpressions(String attrName) {
-        String result = attrName;
-        result = result.replaceAll("\\[([^]]+)]", ".\\${$1}");
-        Matcher resolveFirst = DEREF.matcher(result);
-        while (resolveFirst.find()) {
-            result = result.replace(resolveFirst.group(0), getString(resolveFirst.group(1)));
-            resolveFirst = DEREF.matcher(result);
-        }
-        return result;
+    /**
+     * @param value any object
+     * @return true if the value is a string containing a decimal number
+     */
+    static boolean isNumericString(Object value) {
+        return value instanceof String && NUMERIC.matcher((String) value).matches();
     }
 
     private List<Object> indexList(int size) {
@@ -404,9 +529,21 @@ public class AccessibleData {
      * @param mode     specifies in case of maps whether keys or values are used.
      * @return a collection of sub-elements.
      */
-    @SuppressWarnings({"unchecked", "rawtypes"})
     public Collection<Object> getCollection(String attrName, ListMode mode) {
-        Object target = get(attrName);
+        return getCollection(Expression.parse(attrName), mode);
+    }
+
+    /**
+     * Same as {@link #getCollection(String, ListMode)} with pre-parsed expression.
+     *
+     * @param expression specifies the collection
+     * @param mode       specifies in case of maps whether keys or values are used.
+     * @return a collection of sub-elements.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Collection<Object> getCollection(Expression expression, ListMode mode) {
+        String attrName = expression.toString();
+        Object target = expression.evaluate(this);
         if (target == null || target instanceof String || target.getClass().isPrimitive()) {
             String className = Optional.ofNullable(target).map(Object::getClass).map(Class::getName).orElse("null value");
             recordValueReadMiss(new String[]{attrName, "to collection"}, 1, className);
@@ -415,12 +552,12 @@ public class AccessibleData {
         if (target instanceof Map) {
             return mode == ListMode.VALUES ? ((Map) target).values() : ((Map) target).keySet();
         }
-        if (target instanceof List) {
-            return mode == ListMode.KEYS ? indexList(((List<?>) target).size()) : (List) target;
-        }
         if (target.getClass().isArray()) {
             return mode == ListMode.KEYS ? indexList(Array.getLength(target)) : Arrays.asList((Object[]) target);
         }
+        if (target instanceof Collection) {
+            return mode == ListMode.KEYS ? indexList(((Collection<?>) target).size()) : (Collection) target;
+        }
         return beanToList(attrName, mode, target);
     }
 
@@ -435,22 +572,36 @@ public class AccessibleData {
         this.throwOnValueReadMiss = throwOnValueReadMiss;
     }
 
+    /**
+     * Limits the memory used for sorting in FOR tags. Bigger collections are sorted in parts which are written to
+     * temporary files and merged while iterating, see {@link de.tautenhahn.easydata.json.Snapshot} for the
+     * supported element types. Activate that mode for collections which do not fit into memory, like streamed
+     * arrays.
+     *
+     * @param sortBufferSize maximum number of elements held in memory, default is unlimited
+     */
+    public void setSortBufferSize(int sortBufferSize) {
+        this.sortBufferSize = sortBufferSize;
+    }
+
+    /**
+     * @return maximum number of elements held in memory while sorting
+     */
+    public int getSortBufferSize() {
+        return sortBufferSize;
+    }
+
     private Collection<Object> beanToList(String attrName, ListMode mode, Object target) {
         if (target == null) {
             return Collections.emptyList();
         }
         try {
-            BeanInfo beanInfo = Introspector.getBeanInfo(target.getClass());
-            PropertyDescriptor[] pds = beanInfo.getPropertyDescriptors();
             List<Object> result = new ArrayList<>();
-            for (PropertyDescriptor ds : pds) {
-                Method readMethod = ds.getReadMethod();
-                if (readMethod != null && !"class".equals(ds.getName())) {
-                    result.add(mode == ListMode.KEYS ? ds.getName() : readMethod.invoke(target));
-                }
+            for (BeanAccess.Property property : BeanAccess.of(target.getClass()).getProperties()) {
+                result.add(mode == ListMode.KEYS ? property.name() : property.getter().apply(target));
             }
             return result;
-        } catch (IntrospectionException | ReflectiveOperationException | IllegalArgumentException e) {
+        } catch (IntrospectionException | RuntimeException e) {
             recordValueReadMiss(new String[]{attrName, "to collection"}, 1, target.getClass().getName());
             return Collections.emptyList();
         }
@@ -463,9 +614,7 @@ public class AccessibleData {
         if (throwOnValueReadMiss) {
             throw new ResolverException(message);
         }
-        List<String> misses = (List<String>) additionalValues.getOrDefault(VALUE_READ_MISSES, new ArrayList<>());
-        misses.add(message);
-        additionalValues.put(VALUE_READ_MISSES, misses);
+        context.getValueReadMisses().add(message);
     }
 
 }
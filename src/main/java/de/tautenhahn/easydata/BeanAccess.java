@@ -0,0 +1,221 @@
+package de.tautenhahn.easydata;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+
+/**
+ * Provides fast read access to attributes of Java objects which are neither maps nor lists. Supported are bean
+ * getters, accessors of record components and public fields. Reflection is done only once per class and
+ * attribute, the found accessors are turned into functions which the JIT can handle like normal method calls.
+ *
+ * @author TT
+ */
+final class BeanAccess {
+
+    private static final ClassValue<BeanAccess> BY_CLASS = new ClassValue<>() {
+
+        @Override
+        protected BeanAccess computeValue(Class<?> type) {
+            return new BeanAccess(type);
+        }
+    };
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType GENERIC_GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private static final Function<Object, Object> MISSING = x -> null;
+
+    private final Class<?> type;
+
+    private final Map<String, Method> getters = new HashMap<>();
+
+    private final Map<String, Function<Object, Object>> accessors = new ConcurrentHashMap<>();
+
+    private List<Property> properties;
+
+    /**
+     * Attribute with its name as listed by a bean info.
+     *
+     * @param name   attribute name
+     * @param getter reads the attribute value
+     */
+    record Property(String name, Function<Object, Object> getter) {
+        // no further content
+    }
+
+    private BeanAccess(Class<?> type) {
+        this.type = type;
+        for (Method method : type.getMethods()) {
+            if (method.getParameterCount() == 0 && method.getReturnType() != void.class
+                    && !Modifier.isStatic(method.getModifiers())) {
+                getters.put(method.getName(), method);
+            }
+        }
+    }
+
+    /**
+     * @param type class of the objects to read attributes from
+     * @return accessor object for that class
+     */
+    static BeanAccess of(Class<?> type) {
+        return BY_CLASS.get(type);
+    }
+
+    /**
+     * Returns a function reading the specified attribute. Looks for a getter method (prefix "get" or "is"), a
+     * record component or a public field, in that order.
+     *
+     * @param attrName name of the attribute
+     * @return null if there is no accessible attribute of that name
+     */
+    Function<Object, Object> getAccessor(String attrName) {
+        Function<Object, Object> result = accessors.computeIfAbsent(attrName, this::createAccessor);
+        return result == MISSING ? null : result;
+    }
+
+    /**
+     * @return all attributes of the bean except "class", in case of a record its components.
+     * @throws IntrospectionException if bean info cannot be obtained
+     */
+    synchronized List<Property> getProperties() throws IntrospectionException {
+        if (properties == null) {
+            properties = Collections.unmodifiableList(type.isRecord() ? listComponents() : listBeanProperties());
+        }
+        return properties;
+    }
+
+    private List<Property> listComponents() {
+        List<Property> result = new ArrayList<>();
+        for (RecordComponent component : type.getRecordComponents()) {
+            result.add(new Property(component.getName(), toFunction(component.getAccessor())));
+        }
+        return result;
+    }
+
+    private List<Property> listBeanProperties() throws IntrospectionException {
+        List<Property> result = new ArrayList<>();
+        for (PropertyDescriptor ds : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+            Method readMethod = ds.getReadMethod();
+            if (readMethod != null && !"class".equals(ds.getName())) {
+                result.add(new Property(ds.getName(), toFunction(readMethod)));
+            }
+        }
+        return result;
+    }
+
+    private Function<Object, Object> createAccessor(String attrName) {
+        if (attrName.isEmpty()) {
+            return MISSING;
+        }
+        String upperName = Character.toUpperCase(attrName.charAt(0)) + attrName.substring(1);
+        Method method = getters.getOrDefault("get" + upperName, getters.get("is" + upperName));
+        if (method == null && type.isRecord()) {
+            for (RecordComponent component : type.getRecordComponents()) {
+                if (component.getName().equals(attrName)) {
+                    method = component.getAccessor();
+                }
+            }
+        }
+        if (method != null) {
+            return toFunction(method);
+        }
+        try {
+            Field field = type.getField(attrName);
+            if (!Modifier.isStatic(field.getModifiers())) {
+                return toFunction(LOOKUP.unreflectGetter(field));
+            }
+        } catch (NoSuchFieldException | IllegalAccessException e) // NOPMD same handling as for static field
+        {
+            // empty on purpose
+        }
+        return MISSING;
+    }
+
+    /**
+     * Creates a function calling the method. Uses a generated lambda if the declaring class is visible from here and
+     * the method declares no checked exceptions, a method handle otherwise. The method handle wraps checked
+     * exceptions of the getter into a RuntimeException as reflective calls did.
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> toFunction(Method method) {
+        MethodHandle target;
+        try {
+            target = LOOKUP.unreflect(method);
+        } catch (IllegalAccessException e) {
+            return MISSING;
+        }
+        if (!isVisible(method.getDeclaringClass()) || declaresCheckedException(method)) {
+            return toFunction(target);
+        }
+        CallSite site;
+        try {
+            site = LambdaMetafactory.metafactory(LOOKUP,
+                                                 "apply",
+                                                 MethodType.methodType(Function.class),
+                                                 GENERIC_GETTER,
+                                                 target,
+                                                 target.type().wrap());
+        } catch (LambdaConversionException e) // NOPMD fallback to method handle works in any case
+        {
+            return toFunction(target);
+        }
+        try {
+            return (Function<Object, Object>) site.getTarget().invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot create getter function", e);
+        }
+    }
+
+    private static boolean declaresCheckedException(Method method) {
+        for (Class<?> exception : method.getExceptionTypes()) {
+            if (!RuntimeException.class.isAssignableFrom(exception) && !Error.class.isAssignableFrom(exception)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Function<Object, Object> toFunction(MethodHandle target) {
+        MethodHandle generic = target.asType(GENERIC_GETTER);
+        return element -> {
+            try {
+                return generic.invokeExact(element);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("getter throws checked exception", e);
+            }
+        };
+    }
+
+    private static boolean isVisible(Class<?> declaringClass) {
+        try {
+            ClassLoader ownLoader = BeanAccess.class.getClassLoader(); // NOPMD generated lambdas live here
+            return Class.forName(declaringClass.getName(), false, ownLoader) == declaringClass;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
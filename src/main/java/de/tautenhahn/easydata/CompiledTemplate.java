@@ -0,0 +1,166 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import de.tautenhahn.easydata.json.ProjectingJsonLoader;
+
+
+/**
+ * Template which has been parsed once and can be expanded with different data as often as needed. Use this
+ * class instead of {@link DataIntoTemplate} if the same template is used for many documents: tokenizing and
+ * creating the resolvers is done only once. Macros defined within the template are registered at the own
+ * factory of this object which is referenced by the resolvers, so they are available for each expansion. Static
+ * text is kept UTF-8 encoded, so rendering into an {@link OutputStream} encodes only the inserted values.
+ *
+ * @author TT
+ */
+public final class CompiledTemplate {
+
+    private final Map<Token, Resolver> content = new LinkedHashMap<>();
+
+    private Engine engine = Engine.RESOLVERS;
+
+    private Resolver compiled;
+
+    /**
+     * Ways to execute the parsed template. Results are the same, only speed differs.
+     */
+    public enum Engine {
+        /**
+         * Each tag resolves its content by calling the resolvers of the nested tags.
+         */
+        RESOLVERS,
+        /**
+         * The resolvers are lowered into a flat list of instructions which is executed by a single loop. Faster
+         * for templates with many loops and conditions.
+         */
+        INSTRUCTIONS,
+        /**
+         * The resolvers are turned into Java code which is compiled into a class at runtime. Takes a moment to
+         * set up and needs the Java compiler of a JDK, otherwise the resolvers are used. Compiler messages are
+         * logged as warning in case the generated code cannot be compiled.
+         */
+        GENERATED
+    }
+
+    private CompiledTemplate() {
+        // use compile()
+    }
+
+    /**
+     * Reads the whole template and creates the resolvers for all contained tags.
+     *
+     * @param template input text containing special tags
+     * @param opening  first character of the tag
+     * @param marker   character to recognize the special tags by.
+     * @param closing  last character of the tag
+     * @return new instance which does not depend on the reader anymore
+     * @throws IOException in case of streaming problems
+     */
+    public static CompiledTemplate compile(Reader template, char opening, char marker, char closing)
+            throws IOException {
+        CompiledTemplate result = new CompiledTemplate();
+        EasyTagFactory factory = new EasyTagFactory(opening, marker, closing);
+        factory.preEncodeText();
+        try {
+            for (Tokenizer tokens = new Tokenizer(template, opening, marker, closing); tokens.hasNext(); ) {
+                Token start = tokens.next();
+                result.content.put(start, factory.getResolver(start, tokens));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return result;
+    }
+
+    /**
+     * Selects how the template is executed. Call this method before sharing the object between threads.
+     *
+     * @param engine default is {@link Engine#RESOLVERS}
+     */
+    public void setEngine(Engine engine) {
+        compiled = switch (engine) {
+            case RESOLVERS -> null;
+            case INSTRUCTIONS -> {
+                Program program = Program.compile(content);
+                yield (start, data, output) -> program.run(data, output);
+            }
+            case GENERATED -> hasJavaCompiler() ? TemplateCompiler.compile(content).orElse(null) : null;
+        };
+        this.engine = compiled == null ? Engine.RESOLVERS : engine;
+    }
+
+    /**
+     * The compiler API is missing in runtimes created without the module java.compiler, loading the class which
+     * uses it would fail then.
+     */
+    private static boolean hasJavaCompiler() {
+        return ModuleLayer.boot().findModule("java.compiler").isPresent();
+    }
+
+    /**
+     * @return engine actually used, {@link Engine#RESOLVERS} if the selected one is not available
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns the data paths this template reads. Pass them to {@link ProjectingJsonLoader} to load only these
+     * parts of a big JSON document. Elements of collections are addressed by {@link ProjectingJsonLoader#ANY},
+     * the value at the end of each path is needed completely.
+     *
+     * @return dot separated paths, empty if the template computes paths while rendering, for instance by
+     *         <code>${...}</code> or the USE tag
+     */
+    public Optional<Set<String>> getReferencedPaths() {
+        return ReferencedPaths.of(content);
+    }
+
+    /**
+     * Expands all the special tags using data and writes the result UTF-8 encoded.
+     *
+     * @param data   data to insert, is not changed
+     * @param output where the output is written to, is flushed but not closed
+     * @return see {@link #render(AccessibleData, Writer)}
+     * @throws IOException in case of streaming problems
+     */
+    public List<String> render(AccessibleData data, OutputStream output) throws IOException {
+        Writer writer = new Utf8Writer(output);
+        List<String> result = render(data, writer);
+        writer.flush();
+        return result;
+    }
+
+    /**
+     * Expands all the special tags using data. Values and replacements defined by the tags are kept in a context
+     * of their own for each call, so the same template and data may be rendered by several threads at once. That
+     * context starts with the values and replacements defined in data, see {@link AccessibleData#forRendering()}.
+     *
+     * @param data   data to insert, is not changed
+     * @param output where the output is written to.
+     * @return messages about values which could not be read while rendering, as shown by
+     *         {@link AccessibleData#VALUE_READ_MISSES}
+     * @throws IOException in case of streaming problems
+     */
+    public List<String> render(AccessibleData data, Writer output) throws IOException {
+        AccessibleData renderData = data.forRendering();
+        if (compiled == null) {
+            for (Map.Entry<Token, Resolver> entry : content.entrySet()) {
+                entry.getValue().resolve(entry.getKey(), renderData, output);
+            }
+        } else {
+            compiled.resolve(null, renderData, output);
+        }
+        return renderData.getValueReadMisses();
+    }
+}
@@ -2,8 +2,8 @@ package de.tautenhahn.easydata;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
-import java.util.Scanner;
 
 
 /**
@@ -61,14 +61,18 @@ public class DataIntoTemplate
    */
   public void fillData(Reader template, Writer output) throws IOException
   {
-    try (Scanner scanner = new Scanner(template); Scanner sRes = scanner.useDelimiter("\n"))
+    try
     {
-      for ( Tokenizer tokens = new Tokenizer(sRes, opening, marker, closing) ; tokens.hasNext() ; )
+      for ( Tokenizer tokens = new Tokenizer(template, opening, marker, closing) ; tokens.hasNext() ; )
       {
         Token start = tokens.next();
         factory.getResolver(start, tokens).resolve(start, data, output);
       }
     }
+    catch (UncheckedIOException e)
+    {
+      throw e.getCause();
+    }
 
   }
 
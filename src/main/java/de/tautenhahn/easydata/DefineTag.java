@@ -38,7 +38,7 @@ public class DefineTag extends ComplexTag
                     .collect(Collectors.toList()))
             .orElseGet(Collections::emptyList);
     MacroTag macro = new MacroTag(name, paramNames, content);
-    factory.register(macro.getPattern(), macro);
+    factory.register(macro.getPattern(), macro::forCall);
   }
 
   @Override
@@ -2,17 +2,22 @@ package de.tautenhahn.easydata;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 
 /**
- * A factory for all the tag resolvers defined in this project.
+ * A factory for all the tag resolvers defined in this project. The tag types are indexed by the keyword their
+ * pattern starts with, so only the patterns of suitable keywords are tried for a tag, no matter how many macros
+ * are defined.
  *
  * @author TT
  */
@@ -21,7 +26,15 @@ public final class EasyTagFactory implements ResolverFactory
 
   public static final Resolver IDENTITY = new Identity();
 
-  private final Map<Pattern, BiFunction<Matcher, Iterator<Token>, Resolver>> resolvers = new HashMap<>();
+  private static final String REGEX_META_CHARS = "\\.[]{}()*+?^$|";
+
+  private static final String QUANTIFIERS = "*+?{";
+
+  private final Map<String, List<TagType>> byKeyword = new HashMap<>();
+
+  private final BitSet keywordLengths = new BitSet();
+
+  private final List<TagType> unindexed = new ArrayList<>();
 
   private final Pattern specialTag;
 
@@ -29,6 +42,8 @@ public final class EasyTagFactory implements ResolverFactory
 
   private final char tagEnd;
 
+  private boolean textEncoded;
+
   /**
    * Creates a factory with specified tag syntax.
    *
@@ -43,17 +58,27 @@ public final class EasyTagFactory implements ResolverFactory
     tagStart = String.valueOf(new char[]{opening, marker});
     tagEnd = closing;
 
-    resolvers.put(InsertValueTag.PATTERN, (s, r) -> new InsertValueTag(s));
-    resolvers.put(SkipTag.PATTERN, (s, r) -> new SkipTag(r));
-    resolvers.put(ForTag.PATTERN, (s, r) -> new ForTag(s, r, this));
-    resolvers.put(IfTag.PATTERN, (s, r) -> new IfTag(s, r, this));
-    resolvers.put(DefineTag.PATTERN, (s, r) -> new DefineTag(s, r, this));
-    resolvers.put(IndentTag.PATTERN, (s, r) -> new IndentTag(s, r, this));
-    Resolver useTag = new UseTag(opening, marker, closing, this);
-    resolvers.put(UseTag.PATTERN, (s, r) -> useTag);
-    resolvers.put(SetTag.PATTERN, (s, r) -> new SetTag(s));
-    resolvers.put(MarkupOnlyTag.PATTERN, (s, r) -> new MarkupOnlyTag(s, r, this));
-    resolvers.put(ReplacementTag.PATTERN, (s, r) -> new ReplacementTag(s, r, this));
+    add(InsertValueTag.PATTERN, (s, r) -> new InsertValueTag(s));
+    add(SkipTag.PATTERN, (s, r) -> new SkipTag(r));
+    add(ForTag.PATTERN, (s, r) -> new ForTag(s, r, this));
+    add(IfTag.PATTERN, (s, r) -> new IfTag(s, r, this));
+    add(DefineTag.PATTERN, (s, r) -> new DefineTag(s, r, this));
+    add(IndentTag.PATTERN, (s, r) -> new IndentTag(s, r, this));
+    add(UseTag.PATTERN, (s, r) -> new UseTag(s, opening, marker, closing, this));
+    add(SetTag.PATTERN, (s, r) -> new SetTag(s));
+    add(MarkupOnlyTag.PATTERN, (s, r) -> new MarkupOnlyTag(s, r, this));
+    add(ReplacementTag.PATTERN, (s, r) -> new ReplacementTag(s, r, this));
+  }
+
+  /**
+   * Tag type to be recognized by a pattern.
+   *
+   * @param pattern applied to the tag content
+   * @param creator creates the resolver
+   */
+  private record TagType(Pattern pattern, BiFunction<Matcher, Iterator<Token>, Resolver> creator)
+  {
+    // just data
   }
 
   /**
@@ -80,23 +105,151 @@ public final class EasyTagFactory implements ResolverFactory
     Matcher tagMatcher = specialTag.matcher(token.getContent());
     if (tagMatcher.matches())
     {
-      for ( Entry<Pattern, BiFunction<Matcher, Iterator<Token>, Resolver>> entry : resolvers.entrySet() )
+      String content = tagMatcher.group(1);
+      Resolver result = firstMatchingByKeyword(content, remaining);
+      if (result == null)
+      {
+        result = firstMatching(unindexed, content, remaining);
+      }
+      if (result == null)
       {
-        Matcher contentMatcher = entry.getKey().matcher(tagMatcher.group(1));
+        throw new IllegalArgumentException("unrecognized token " + token);
+      }
+      return result;
+    }
+    return textEncoded ? new StaticText(token.getContent()) : IDENTITY;
+  }
+
+  /**
+   * Makes the factory keep text outside special tags encoded as well, which pays only if the resolvers are used
+   * several times.
+   */
+  void preEncodeText()
+  {
+    textEncoded = true;
+  }
+
+  /**
+   * Tries the tag types indexed by the first word of the content, then those indexed by a proper prefix of that
+   * word such as "=".
+   */
+  private Resolver firstMatchingByKeyword(String content, Iterator<Token> remaining)
+  {
+    int wordEnd = content.indexOf(' ');
+    if (wordEnd < 0)
+    {
+      wordEnd = content.length();
+    }
+    Resolver result = firstMatching(byKeyword.get(content.substring(0, wordEnd)), content, remaining);
+    int length = keywordLengths.nextSetBit(1);
+    while (result == null && length >= 0 && length < wordEnd)
+    {
+      result = firstMatching(byKeyword.get(content.substring(0, length)), content, remaining);
+      length = keywordLengths.nextSetBit(length + 1);
+    }
+    return result;
+  }
+
+  private static Resolver firstMatching(List<TagType> candidates, String content, Iterator<Token> remaining)
+  {
+    if (candidates != null)
+    {
+      for ( TagType candidate : candidates )
+      {
+        Matcher contentMatcher = candidate.pattern().matcher(content);
         if (contentMatcher.matches())
         {
-          return entry.getValue().apply(contentMatcher, remaining);
+          return candidate.creator().apply(contentMatcher, remaining);
         }
       }
-      throw new IllegalArgumentException("unrecognized token " + token);
     }
-    return IDENTITY;
+    return null;
   }
 
   @Override
   public void register(Pattern pattern, Resolver tag)
   {
-    resolvers.put(pattern, (r, s) -> tag);
+    add(pattern, (r, s) -> tag);
+  }
+
+  @Override
+  public void register(Pattern pattern, Function<Matcher, Resolver> creator)
+  {
+    add(pattern, (s, r) -> creator.apply(s));
+  }
+
+  /**
+   * Indexes the new tag type by the literal text its pattern starts with. Tag types registered later take
+   * precedence over earlier ones with same keyword, so macros may be re-defined.
+   */
+  private void add(Pattern pattern, BiFunction<Matcher, Iterator<Token>, Resolver> creator)
+  {
+    String keyword = getKeyword(pattern);
+    if (keyword.isEmpty())
+    {
+      unindexed.add(0, new TagType(pattern, creator));
+    }
+    else
+    {
+      byKeyword.computeIfAbsent(keyword, k -> new ArrayList<>()).add(0, new TagType(pattern, creator));
+      keywordLengths.set(keyword.length());
+    }
+  }
+
+  /**
+   * @return literal text without blanks every content matched by the pattern starts with, empty if that cannot be
+   *         determined
+   */
+  private static String getKeyword(Pattern pattern)
+  {
+    String regex = pattern.pattern();
+    if (pattern.flags() != 0 || hasTopLevelAlternative(regex))
+    {
+      return "";
+    }
+    int length = 0;
+    while (length < regex.length() && regex.charAt(length) != ' '
+           && REGEX_META_CHARS.indexOf(regex.charAt(length)) < 0
+           && (length + 1 == regex.length() || QUANTIFIERS.indexOf(regex.charAt(length + 1)) < 0))
+    {
+      length++;
+    }
+    return regex.substring(0, length);
+  }
+
+  private static boolean hasTopLevelAlternative(String regex)
+  {
+    int depth = 0;
+    boolean escaped = false;
+    boolean inClass = false;
+    for ( char c : regex.toCharArray() )
+    {
+      if (escaped)
+      {
+        escaped = false;
+      }
+      else if (c == '\\')
+      {
+        escaped = true;
+      }
+      else if (inClass || c == '[')
+      {
+        inClass = c != ']';
+      }
+      else if (c == '(')
+      {
+        depth++;
+      }
+      else if (c == ')')
+      {
+        depth--;
+      }
+      else if (c == '|' && depth == 0)
+      {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
@@ -0,0 +1,238 @@
+package de.tautenhahn.easydata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.tautenhahn.easydata.AccessibleData.ListMode;
+
+
+/**
+ * Value expression as used inside the special tags, parsed once when the template is read. Supported are
+ * <ul>
+ * <li>literals: NULL, true, false, non-negative integers and Strings surrounded by ", ' or #</li>
+ * <li>attribute paths like <code>a.b.c</code> where parts may be de-referenced by <code>${...}</code> or
+ * <code>[...]</code></li>
+ * <li>the function <code>SIZE(...)</code> or <code>SIZE{...}</code></li>
+ * </ul>
+ *
+ * @author TT
+ */
+public abstract class Expression {
+
+    private static final Pattern SIZE = Pattern.compile("SIZE\\(([^)]+)\\)");
+
+    private static final Pattern SIZE2 = Pattern.compile("SIZE\\{([^}]+)\\}");
+
+    private static final Pattern LITERAL = Pattern.compile("\"[^\"]*\"|'[^']*'|#[^#]*#");
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+    private static final Pattern BRACKETS = Pattern.compile("\\[([^]]+)]");
+
+    private static final String DEREF_START = "${";
+
+    private final String text;
+
+    private Expression(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses an expression.
+     *
+     * @param text expression as written in the template
+     * @return object to evaluate the expression with
+     */
+    public static Expression parse(String text) {
+        if ("NULL".equals(text)) {
+            return new Constant(text, null);
+        }
+        if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
+            return new Constant(text, Boolean.valueOf(text));
+        }
+        if (LITERAL.matcher(text).matches()) {
+            return new Constant(text, text.substring(1, text.length() - 1));
+        }
+        if (NUMBER.matcher(text).matches()) {
+            return new Constant(text, Integer.valueOf(text));
+        }
+        for (Pattern p : new Pattern[]{SIZE, SIZE2}) {
+            Matcher m = p.matcher(text);
+            if (m.matches()) {
+                return new Size(text, parse(m.group(1)));
+            }
+        }
+        return parsePath(text);
+    }
+
+    private static Expression parsePath(String text) {
+        String normalized = BRACKETS.matcher(text).replaceAll(".\\${$1}");
+        List<Object> parts = new ArrayList<>();
+        int pos = 0;
+        for (int start = normalized.indexOf(DEREF_START); start >= 0; start = normalized.indexOf(DEREF_START, pos)) {
+            int end = findClosingBrace(normalized, start + DEREF_START.length());
+            if (end < 0) {
+                break;
+            }
+            parts.add(normalized.substring(pos, start));
+            parts.add(parse(normalized.substring(start + DEREF_START.length(), end)));
+            pos = end + 1;
+        }
+        if (parts.isEmpty()) {
+            return new Path(text, normalized.split("\\."));
+        }
+        parts.add(normalized.substring(pos));
+        return new DereferencingPath(text, parts);
+    }
+
+    private static int findClosingBrace(String text, int start) {
+        int depth = 0;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the value of this expression.
+     *
+     * @param data provides the addressed values
+     * @return the value, of whatever type
+     */
+    public abstract Object evaluate(AccessibleData data);
+
+    /**
+     * @return split attribute path if this expression is a plain path, empty otherwise
+     */
+    Optional<String[]> getPath() {
+        return Optional.empty();
+    }
+
+    /**
+     * @return attribute paths of the values read when evaluating, empty if these paths are computed while
+     *         evaluating
+     */
+    Optional<List<String[]>> getReadPaths() {
+        return Optional.of(List.of());
+    }
+
+    /**
+     * @return the original expression text
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * Literal value.
+     */
+    private static final class Constant extends Expression {
+
+        private final Object value;
+
+        Constant(String text, Object value) {
+            super(text);
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(AccessibleData data) {
+            return value;
+        }
+    }
+
+    /**
+     * Attribute path without any de-referencing, split already. The first name is looked up as defined value by
+     * its slot.
+     */
+    private static final class Path extends Expression {
+
+        private final String[] names;
+
+        private final int rootSlot;
+
+        Path(String text, String... names) {
+            super(text);
+            this.names = names;
+            rootSlot = RenderContext.slotOf(names[0]);
+        }
+
+        @Override
+        public Object evaluate(AccessibleData data) {
+            return data.getByPath(rootSlot, names);
+        }
+
+        @Override
+        Optional<String[]> getPath() {
+            return Optional.of(names);
+        }
+
+        @Override
+        Optional<List<String[]>> getReadPaths() {
+            return Optional.of(List.<String[]>of(names));
+        }
+    }
+
+    /**
+     * Attribute path containing inner expressions. Values of these are inserted as text before the path is
+     * split.
+     */
+    private static final class DereferencingPath extends Expression {
+
+        private final List<Object> parts;
+
+        DereferencingPath(String text, List<Object> parts) {
+            super(text);
+            this.parts = parts;
+        }
+
+        @Override
+        public Object evaluate(AccessibleData data) {
+            StringBuilder attr = new StringBuilder();
+            for (Object part : parts) {
+                attr.append(part instanceof Expression e ? data.getString(e) : (String) part);
+            }
+            return data.getByPath(attr.toString().split("\\."));
+        }
+
+        @Override
+        Optional<List<String[]>> getReadPaths() {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The SIZE function.
+     */
+    private static final class Size extends Expression {
+
+        private final Expression collection;
+
+        Size(String text, Expression collection) {
+            super(text);
+            this.collection = collection;
+        }
+
+        @Override
+        public Object evaluate(AccessibleData data) {
+            return data.getCollection(collection, ListMode.DEFAULT).size();
+        }
+
+        @Override
+        Optional<List<String[]>> getReadPaths() {
+            return collection.getReadPaths();
+        }
+    }
+}
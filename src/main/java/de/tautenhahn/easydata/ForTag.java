@@ -4,11 +4,16 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import de.tautenhahn.easydata.AccessibleData.ListMode;
+import de.tautenhahn.easydata.json.RecordTable;
 
 
 /**
@@ -49,7 +54,19 @@ public class ForTag extends ComplexTag
 
   static final int GROUP_ORDER_ATTR = 9;
 
-  private final Matcher start;
+  private final int definedSlot;
+
+  private final Expression collection;
+
+  private final ListMode mode;
+
+  private final String[] selectPath;
+
+  private final String orderOperator;
+
+  private final String[] orderPath;
+
+  private final boolean unique;
 
   /**
    * Creates new instance.
@@ -61,7 +78,31 @@ public class ForTag extends ComplexTag
   public ForTag(Matcher start, Iterator<Token> remaining, ResolverFactory factory)
   {
     super(start, remaining, factory, "DELIM", "/FOR");
-    this.start = start;
+    definedSlot = RenderContext.slotOf(start.group(GROUP_NAME));
+    String addressedCollection = start.group(GROUP_COLLECTION);
+    ListMode listMode = ListMode.DEFAULT;
+    if (addressedCollection.endsWith(".keys"))
+    {
+      addressedCollection = addressedCollection.substring(0, addressedCollection.length() - ".keys".length());
+      listMode = ListMode.KEYS;
+    }
+    else if (addressedCollection.endsWith(".values"))
+    {
+      addressedCollection = addressedCollection.substring(0,
+                                                          addressedCollection.length() - ".values".length());
+      listMode = ListMode.VALUES;
+    }
+    collection = Expression.parse(addressedCollection);
+    mode = listMode;
+    selectPath = split(start.group(GROUP_SELECT));
+    orderOperator = start.group(GROUP_ORDER);
+    orderPath = split(start.group(GROUP_ORDER_ATTR));
+    unique = start.group(GROUP_UNIQUE) != null;
+  }
+
+  private static String[] split(String attrName)
+  {
+    return attrName == null ? null : attrName.split("\\.");
   }
 
   @Override
@@ -69,32 +110,15 @@ public class ForTag extends ComplexTag
   {
     try
     {
-      String addressedCollection = start.group(GROUP_COLLECTION);
-      ListMode mode = ListMode.DEFAULT;
-      if (addressedCollection.endsWith(".keys"))
-      {
-        addressedCollection = addressedCollection.substring(0,
-                                                            addressedCollection.length() - ".keys".length());
-        mode = ListMode.KEYS;
-      }
-      else if (addressedCollection.endsWith(".values"))
-      {
-        addressedCollection = addressedCollection.substring(0,
-                                                            addressedCollection.length()
-                                                               - ".values".length());
-        mode = ListMode.VALUES;
-      }
-      String definedName = start.group(GROUP_NAME);
-
-      for ( Iterator<Object> iter = getIterator(data, addressedCollection, mode) ; iter.hasNext() ; )
+      for ( Iterator<Object> iter = getIterator(data) ; iter.hasNext() ; )
       {
-        data.define(definedName, iter.next());
+        data.define(definedSlot, iter.next());
         resolveContent(content, data, output);
         if (iter.hasNext())
         {
           resolveContent(otherContent, data, output);
         }
-        data.undefine(definedName);
+        data.undefine(definedSlot);
       }
     }
     catch (ResolverException e)
@@ -104,23 +128,119 @@ public class ForTag extends ComplexTag
     }
   }
 
-  private Iterator<Object> getIterator(AccessibleData data, String addressedCollection, ListMode mode)
+  /**
+   * @return slot of the name the elements are defined by
+   */
+  int getDefinedSlot()
+  {
+    return definedSlot;
+  }
+
+  /**
+   * @return expression addressing the iterated collection
+   */
+  Expression getCollection()
+  {
+    return collection;
+  }
+
+  /**
+   * @return whether keys, values or elements are iterated
+   */
+  ListMode getMode()
+  {
+    return mode;
+  }
+
+  /**
+   * @return attribute path selected from each element, null if elements are used themselves
+   */
+  String[] getSelectPath()
+  {
+    return selectPath;
+  }
+
+  /**
+   * @return true if the elements are sorted
+   */
+  boolean isSorted()
+  {
+    return orderOperator != null;
+  }
+
+  /**
+   * @return attribute path to sort by, null to sort by the elements themselves
+   */
+  String[] getOrderPath()
+  {
+    return orderPath;
+  }
+
+  /**
+   * @return true if repeated elements are skipped
+   */
+  boolean isUnique()
   {
-    Collection<Object> col = data.getCollection(addressedCollection, mode);
-    String selectAttr = start.group(GROUP_SELECT);
-    if (selectAttr != null)
+    return unique;
+  }
+
+  /**
+   * @param data provides the collection
+   * @return the elements to iterate, already selected, sorted and filtered. Without sorting, elements are
+   *         selected and filtered while iterating. Sorting holds at most
+   *         {@link AccessibleData#getSortBufferSize()} elements in memory.
+   */
+  Iterator<Object> getIterator(AccessibleData data)
+  {
+    Collection<Object> source = data.getCollection(collection, mode);
+    Iterator<Object> elements = select(data, source);
+    if (orderOperator == null && !unique)
     {
-      col = data.map(col, selectAttr);
+      return elements;
     }
-    String orderOperator = start.group(GROUP_ORDER);
-    if (orderOperator != null)
+    Optional<List<Object>> byColumn = sortedByColumn(source);
+    if (orderOperator != null && byColumn.isEmpty())
     {
-      col = data.sort(col, start.group(GROUP_ORDER_ATTR), "ASCENDING".equals(orderOperator));
+      return SpillingSort.sort(elements,
+                               data.getAttributeReader(orderPath),
+                               "ASCENDING".equals(orderOperator),
+                               unique,
+                               data.getSortBufferSize());
     }
-    if (start.group(GROUP_UNIQUE) != null)
+    Iterator<Object> ordered = byColumn.map(List::iterator).orElse(elements);
+    return unique ? distinct(ordered) : ordered;
+  }
+
+  private Iterator<Object> select(AccessibleData data, Collection<Object> source)
+  {
+    if (selectPath == null)
+    {
+      return source.iterator();
+    }
+    Optional<List<Object>> column = source instanceof RecordTable table ? table.column(selectPath)
+      : Optional.empty();
+    return column.map(List::iterator).orElseGet(() -> data.mapByPath(source.iterator(), selectPath));
+  }
+
+  /**
+   * @return elements without repetitions, each one checked when it is requested
+   */
+  private static Iterator<Object> distinct(Iterator<Object> elements)
+  {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(elements, Spliterator.ORDERED), false)
+                        .distinct()
+                        .iterator();
+  }
+
+  /**
+   * @return elements of a record table sorted by a numeric column, empty if not applicable
+   */
+  private Optional<List<Object>> sortedByColumn(Collection<Object> source)
+  {
+    if (selectPath == null && orderPath != null && source instanceof RecordTable table)
     {
-      col = col.stream().distinct().collect(Collectors.toList());
+      return table.sortedBy(orderPath, "ASCENDING".equals(orderOperator));
     }
-    return col.iterator();
+    return Optional.empty();
   }
 }
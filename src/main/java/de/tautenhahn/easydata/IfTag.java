@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.Iterator;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,9 +16,13 @@ import java.util.regex.Pattern;
  */
 public class IfTag extends ComplexTag {
 
-    private static final String VALUE_KEY = "VALUE";
+    static final int VALUE_SLOT = RenderContext.slotOf("VALUE");
 
-    private final Matcher start;
+    private final Expression left;
+
+    private final String operator;
+
+    private final Expression right;
 
     /**
      * How to recognize this tag.
@@ -33,7 +38,9 @@ public class IfTag extends ComplexTag {
      */
     public IfTag(Matcher start, Iterator<Token> remaining, ResolverFactory factory) {
         super(start, remaining, factory, "ELSE", "/IF");
-        this.start = start;
+        left = Expression.parse(start.group(1).trim());
+        operator = start.group(3);
+        right = start.group(2) == null ? null : Expression.parse(start.group(4).trim());
     }
 
     @Override
@@ -48,36 +55,52 @@ public class IfTag extends ComplexTag {
             e.addLocation(startTag);
             throw e;
         }
-        data.undefine(VALUE_KEY);
+        data.undefine(VALUE_SLOT);
     }
 
 
-    private boolean conditionSatisfied(AccessibleData data) {
-        String leftSide = start.group(1).trim();
-        Object left = data.get(leftSide);
+    /**
+     * Evaluates the condition. Defines VALUE if there is no operator and the value is truthy.
+     *
+     * @param data values to check
+     * @return true if the main content applies
+     */
+    boolean conditionSatisfied(AccessibleData data) {
+        Object leftValue = left.evaluate(data);
 
-        if (start.group(2) == null) {
-            if (isTruthy(left)) {
-                data.define(VALUE_KEY, left);
+        if (right == null) {
+            if (isTruthy(leftValue)) {
+                data.define(VALUE_SLOT, leftValue);
                 return true;
             }
             return false;
         }
 
-        String operator = start.group(3);
-        String rightSide = start.group(4).trim();
-
-        Object right = data.get(rightSide);
+        Object rightValue = right.evaluate(data);
 
         return switch (operator) {
-            case "==" -> Objects.equals(left, right);
-            case "!=" -> !Objects.equals(left, right);
-            case "<" -> AccessibleData.compare(left, right, true) < 0;
-            case ">" -> AccessibleData.compare(left, right, true) > 0;
+            case "==" -> Objects.equals(leftValue, rightValue);
+            case "!=" -> !Objects.equals(leftValue, rightValue);
+            case "<" -> AccessibleData.compare(leftValue, rightValue, true) < 0;
+            case ">" -> AccessibleData.compare(leftValue, rightValue, true) > 0;
             default -> throw new IllegalArgumentException("Unsupported operator " + operator);
         };
     }
 
+    /**
+     * @return expression to check or to compare
+     */
+    Expression getCondition() {
+        return left;
+    }
+
+    /**
+     * @return expression to compare the condition with, empty if there is no operator
+     */
+    Optional<Expression> getComparedValue() {
+        return Optional.ofNullable(right);
+    }
+
     private static boolean isTruthy(Object left) {
         if (left instanceof String ls) {
             return !ls.isEmpty();
@@ -25,11 +25,19 @@ public class InsertValueTag implements Resolver
    */
   public static final Pattern PATTERN = Pattern.compile("= *(" + REGEX_SIMPLE_EXPRESSION + ") *");
 
-  private final String name;
+  private final Expression value;
 
   InsertValueTag(Matcher start)
   {
-    name = start.group(1);
+    value = Expression.parse(start.group(1));
+  }
+
+  /**
+   * @return the expression to insert the value of
+   */
+  Expression getValue()
+  {
+    return value;
   }
 
   @Override
@@ -37,7 +45,7 @@ public class InsertValueTag implements Resolver
   {
     try
     {
-      output.write(data.getString(name));
+      output.write(data.getString(value));
     }
     catch (ResolverException e)
     {
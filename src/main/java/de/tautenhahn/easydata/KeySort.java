@@ -0,0 +1,138 @@
+package de.tautenhahn.easydata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+
+/**
+ * Sorts elements by keys which are computed once for each element. If all keys are numbers, numeric strings or
+ * other strings, the keys are compared directly, otherwise as by {@link AccessibleData#compare(Object, Object,
+ * boolean)}. Big collections are sorted in parallel. Sorting is stable in both directions.
+ *
+ * @author TT
+ */
+final class KeySort {
+
+    /**
+     * Below this size, sorting in parallel does not pay off.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private KeySort() {
+        // static only
+    }
+
+    /**
+     * Returns the sorted elements.
+     *
+     * @param elements  content to sort
+     * @param keyOf     computes the key to sort an element by
+     * @param ascending specifies order
+     * @return new list
+     */
+    static List<Object> sort(Collection<Object> elements, Function<Object, Object> keyOf, boolean ascending) {
+        List<Keyed> keyed = new ArrayList<>(elements.size());
+        for (Object element : elements) {
+            keyed.add(Keyed.of(element, keyOf.apply(element)));
+        }
+        sort(keyed, ascending);
+        List<Object> result = new ArrayList<>(keyed.size());
+        for (Keyed k : keyed) {
+            result.add(k.element());
+        }
+        return result;
+    }
+
+    /**
+     * Sorts elements with already computed keys.
+     *
+     * @param keyed     elements with their keys, sorted in place
+     * @param ascending specifies order
+     */
+    static void sort(List<Keyed> keyed, boolean ascending) {
+        Comparator<Keyed> order = order(keyed, ascending);
+        if (keyed.size() < PARALLEL_THRESHOLD) {
+            keyed.sort(order);
+            return;
+        }
+        Keyed[] array = keyed.toArray(new Keyed[0]);
+        Arrays.parallelSort(array, order);
+        for (int i = 0; i < array.length; i++) {
+            keyed.set(i, array[i]);
+        }
+    }
+
+    /**
+     * @return comparator specialized to the type all keys have, if any
+     */
+    private static Comparator<Keyed> order(List<Keyed> keyed, boolean ascending) {
+        int numericStrings = 0;
+        int doubles = 0;
+        int strings = 0;
+        for (Keyed k : keyed) {
+            if (k.isNumericString()) {
+                numericStrings++;
+            } else if (k.key() instanceof Double) {
+                doubles++;
+            } else if (k.key() instanceof String) {
+                strings++;
+            }
+        }
+        if (numericStrings == keyed.size() || doubles == keyed.size()) {
+            return directed(Comparator.comparingDouble(Keyed::number), ascending);
+        }
+        if (strings == keyed.size()) {
+            return directed(Comparator.comparing(k -> (String) k.key()), ascending);
+        }
+        return (a, b) -> compare(a, b, ascending);
+    }
+
+    /**
+     * Compares keys with the same result as the specialized comparators, for instance to merge sorted parts.
+     *
+     * @param a         one element with key
+     * @param b         other element with key
+     * @param ascending true for natural order, false to reverse
+     * @return see {@link Comparator}
+     */
+    static int compare(Keyed a, Keyed b, boolean ascending) {
+        if (a.isNumericString() && b.isNumericString()) {
+            return Double.compare(a.number(), b.number()) * (ascending ? 1 : -1);
+        }
+        return AccessibleData.compare(a.key(), b.key(), ascending);
+    }
+
+    private static Comparator<Keyed> directed(Comparator<Keyed> order, boolean ascending) {
+        return ascending ? order : order.reversed();
+    }
+
+    /**
+     * Element with its key.
+     *
+     * @param element sorted object
+     * @param key     object to compare
+     * @param number  numeric value of the key, NaN if the key is neither a numeric string nor a Double
+     */
+    record Keyed(Object element, Object key, double number) {
+
+        /**
+         * @param element sorted object
+         * @param key     object to compare
+         * @return element with its key
+         */
+        static Keyed of(Object element, Object key) {
+            if (AccessibleData.isNumericString(key)) {
+                return new Keyed(element, key, Double.parseDouble((String) key));
+            }
+            return new Keyed(element, key, key instanceof Double d ? d : Double.NaN);
+        }
+
+        boolean isNumericString() {
+            return key instanceof String && !Double.isNaN(number);
+        }
+    }
+}
@@ -4,7 +4,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
@@ -42,7 +41,7 @@ public class LatexAdapter
   public void convert(InputStream source, OutputStream destination) throws IOException
   {
     try (Reader reader = new InputStreamReader(source, StandardCharsets.UTF_8);
-      Writer writer = new OutputStreamWriter(destination, StandardCharsets.UTF_8))
+      Writer writer = new Utf8Writer(destination))
     {
       expander.fillData(reader, writer);
     }
@@ -2,6 +2,7 @@ package de.tautenhahn.easydata;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -10,7 +11,8 @@ import java.util.regex.Pattern;
 
 
 /**
- * Resolver to apply a pre-defined macro.
+ * Pre-defined macro. Each place where the macro is used gets its own resolver with parsed parameter expressions.
+ * Resolving this object directly parses the parameters of the given tag each time.
  *
  * @author TT
  */
@@ -19,56 +21,155 @@ public class MacroTag implements Resolver
 
   private final Map<Token, Resolver> content;
 
+  private volatile Program body;
+
   private final Pattern pattern;
 
-  private final List<String> paramNames;
+  private final int[] paramSlots;
 
   MacroTag(String name, List<String> paramNames, Map<Token, Resolver> content)
   {
-    this.paramNames = paramNames;
+    paramSlots = paramNames.stream().mapToInt(RenderContext::slotOf).toArray();
     this.content = content;
     StringBuffer regex = new StringBuffer(name);
     paramNames.forEach(n -> regex.append(" +([^ ]+)"));
     this.pattern = Pattern.compile(regex.toString());
   }
 
+  /**
+   * @param call matched content of the tag using this macro
+   * @return resolver for that tag
+   */
+  Resolver forCall(Matcher call)
+  {
+    Expression[] params = new Expression[paramSlots.length];
+    for ( int i = 0 ; i < params.length ; i++ )
+    {
+      params[i] = Expression.parse(call.group(i + 1));
+    }
+    return new Call(params);
+  }
+
   @Override
   public void resolve(Token start, AccessibleData data, Writer output) throws IOException
   {
-    try
+    String str = start.getContent();
+    Matcher m = pattern.matcher(str.substring(2, str.length() - 1).trim());
+    if (!m.matches())
     {
-      String str = start.getContent();
-      Matcher m = pattern.matcher(str.substring(2, str.length() - 1).trim());
-      if (!m.matches()) {
-        throw new IllegalArgumentException("Unsupported token '"+str+"'");
+      throw new IllegalArgumentException("Unsupported token '" + str + "'");
+    }
+    forCall(m).resolve(start, data, output);
+  }
+
+  /**
+   * @return the pattern to recognize this tag by, contains name and correct number of groups for parameters.
+   */
+  public Pattern getPattern()
+  {
+    return pattern;
+  }
+
+  /**
+   * Resolver to apply the macro.
+   */
+  final class Call implements Resolver
+  {
+
+    private final Expression[] params;
+
+    Call(Expression... params)
+    {
+      this.params = params;
+    }
+
+    @Override
+    public void resolve(Token start, AccessibleData data, Writer output) throws IOException
+    {
+      try
+      {
+        bind(start, data);
+        for ( Entry<Token, Resolver> entry : content.entrySet() )
+        {
+          entry.getValue().resolve(entry.getKey(), data, output);
+        }
+        unbind(data);
+      }
+      catch (ResolverException e)
+      {
+        e.addLocation(start);
+        throw e;
       }
-      for ( int i = 0 ; i < paramNames.size() ; i++ )
+    }
+
+    /**
+     * Defines the parameter values.
+     *
+     * @param start tag using the macro
+     * @param data where to define the values
+     */
+    void bind(Token start, AccessibleData data)
+    {
+      for ( int i = 0 ; i < params.length ; i++ )
       {
-        final Object value = data.get(m.group(i + 1));
+        final Object value = params[i].evaluate(data);
         if (value == null)
         {
-          throw new ResolverException("parameter value " + m.group(i + 1) + " undefined").addLocation(start);
+          throw new ResolverException("parameter value " + params[i] + " undefined").addLocation(start);
         }
-        data.define(paramNames.get(i), value);
+        data.define(paramSlots[i], value);
       }
-      for ( Entry<Token, Resolver> entry : content.entrySet() )
+    }
+
+    /**
+     * Removes the parameter values.
+     *
+     * @param data where the values have been defined
+     */
+    void unbind(AccessibleData data)
+    {
+      for ( int slot : paramSlots )
       {
-        entry.getValue().resolve(entry.getKey(), data, output);
+        data.undefine(slot);
       }
-      paramNames.forEach(data::undefine);
     }
-    catch (ResolverException e)
+
+    /**
+     * @return parameter expressions, in order of the parameter names
+     */
+    List<Expression> getParams()
     {
-      e.addLocation(start);
-      throw e;
+      return Arrays.asList(params);
     }
-  }
 
-  /**
-   * @return the pattern to recognize this tag by, contains name and correct number of groups for parameters.
-   */
-  public Pattern getPattern()
-  {
-    return pattern;
+    /**
+     * @return slots of the parameter names
+     */
+    int[] getParamSlots()
+    {
+      return paramSlots.clone();
+    }
+
+    /**
+     * @return macro content as instructions, compiled when first needed
+     */
+    Program getBody()
+    {
+      Program result = body;
+      if (result == null)
+      {
+        result = Program.compile(content);
+        body = result;
+      }
+      return result;
+    }
+
+    /**
+     * @return macro content with its resolvers
+     */
+    Map<Token, Resolver> getContent()
+    {
+      return content;
+    }
   }
 }
@@ -1,5 +1,7 @@
 package de.tautenhahn.easydata;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -7,13 +9,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Map;
 
 import de.tautenhahn.easydata.docx.DocxAdapter;
+import de.tautenhahn.easydata.json.Snapshot;
 
 
 /**
@@ -34,8 +38,9 @@ public final class Main
   /**
    * Command line call.
    *
-   * @param args data file (JSON), template file, output file, markers (3 characters, namely opening,
-   *          expression start, closing)
+   * @param args data file (JSON or snapshot), template file, output file, markers (3 characters, namely
+   *          opening, expression start, closing). Alternatively "-snapshot", JSON file, snapshot file to
+   *          write a snapshot of the JSON data.
    * @throws IOException in case of IO problems
    * @throws FileNotFoundException if specified file does not exist
    */
@@ -45,16 +50,25 @@ public final class Main
     {
       out.println("""
               Usage: Main <data> <template> <output> [markers]\s
+                 or: Main -snapshot <json> <snapshot>\s
               where
-                 data is path of a JSON file
+                 data is path of a JSON file or of a snapshot file ending with .snapshot
                  template is a document template file containing special tags to be replaced
                  output is the destination file name
-                 markers consists of 3 characters marking the special tags, for instance "<@>\"""");
+                 markers consists of 3 characters marking the special tags, for instance "<@>"
+                 json and snapshot are the JSON file to read and the snapshot file to write""");
       return;
     }
-    AccessibleData data = AccessibleData.byJsonPath(args[0]);
+    if ("-snapshot".equals(args[0]))
+    {
+      Snapshot.write((Map<?, ?>) AccessibleData.byJsonPath(args[1]).getData(), Paths.get(args[2]));
+      return;
+    }
+    AccessibleData data = args[0].endsWith(".snapshot")
+      ? AccessibleData.byBean(Snapshot.read(Paths.get(args[0]))) : AccessibleData.byJsonPath(args[0]);
     String marker = getMarker(args);
-    try (InputStream src = new FileInputStream(args[1]); OutputStream destRes = new FileOutputStream(args[2]))
+    try (InputStream src = new BufferedInputStream(new FileInputStream(args[1]));
+      OutputStream destRes = new BufferedOutputStream(new FileOutputStream(args[2])))
     {
       if (args[1].endsWith(".docx"))
       {
@@ -64,7 +78,7 @@ public final class Main
         }
         new DocxAdapter(data).convert(src, destRes);
       }
-      if (args[1].endsWith(".tex"))
+      else if (args[1].endsWith(".tex"))
       {
         if (!"<@>".equals(marker))
         {
@@ -75,7 +89,7 @@ public final class Main
       else
       {
         try (Reader template = new InputStreamReader(src, StandardCharsets.UTF_8);
-          Writer output = new OutputStreamWriter(destRes, StandardCharsets.UTF_8))
+          Writer output = new Utf8Writer(destRes))
         {
           DataIntoTemplate expander = new DataIntoTemplate(data, marker.charAt(0), marker.charAt(1),
                                                            marker.charAt(2));
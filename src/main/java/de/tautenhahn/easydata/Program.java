@@ -0,0 +1,242 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Resolver tree lowered into a flat list of instructions which is executed by one loop. Static text, inserted
+ * values, conditions, loops and macro calls become instructions of their own, all other tags are executed by
+ * their resolver. Results and error messages are the same as resolving the tree.
+ *
+ * @author TT
+ */
+final class Program {
+
+    private static final int TEXT = 0;
+
+    private static final int VALUE = 1;
+
+    private static final int IF = 2;
+
+    private static final int JUMP = 3;
+
+    private static final int UNDEFINE = 4;
+
+    private static final int FOR = 5;
+
+    private static final int FOR_DELIM = 6;
+
+    private static final int FOR_NEXT = 7;
+
+    private static final int FOR_END = 8;
+
+    private static final int CALL = 9;
+
+    private static final int EXEC = 10;
+
+    private static final Iterator<?>[] NO_LOOPS = {};
+
+    private final int[] ops;
+
+    private final int[] args;
+
+    private final Object[] operands;
+
+    private final Token[] tokens;
+
+    private final int[] scopes;
+
+    private Program(Builder builder) {
+        ops = builder.ops.stream().mapToInt(Integer::intValue).toArray();
+        args = builder.args.stream().mapToInt(Integer::intValue).toArray();
+        scopes = builder.scopes.stream().mapToInt(Integer::intValue).toArray();
+        operands = builder.operands.toArray(new Object[0]);
+        tokens = builder.tokens.toArray(new Token[0]);
+    }
+
+    /**
+     * Creates the instructions.
+     *
+     * @param content tokens with their resolvers as created by the factory
+     * @return executable instructions
+     */
+    static Program compile(Map<Token, Resolver> content) {
+        Builder builder = new Builder();
+        builder.lower(content, -1);
+        return new Program(builder);
+    }
+
+    /**
+     * Executes the instructions.
+     *
+     * @param data   data to insert
+     * @param output where the output is written to
+     * @throws IOException in case of streaming problems
+     */
+    void run(AccessibleData data, Writer output) throws IOException { // NOPMD one switch is the point here
+        Iterator<?>[] loops = NO_LOOPS;
+        int depth = 0;
+        int pc = 0;
+        try {
+            while (pc < ops.length) {
+                int next = pc + 1;
+                switch (ops[pc]) {
+                    case TEXT -> ((Resolver) operands[pc]).resolve(null, data, output);
+                    case VALUE -> output.write(data.getString((Expression) operands[pc]));
+                    case IF -> next = ((IfTag) operands[pc]).conditionSatisfied(data) ? next : args[pc];
+                    case JUMP -> next = args[pc];
+                    case UNDEFINE -> data.undefine(args[pc]);
+                    case FOR -> {
+                        ForTag tag = (ForTag) operands[pc];
+                        Iterator<Object> iterator = tag.getIterator(data);
+                        if (iterator.hasNext()) {
+                            if (depth == loops.length) {
+                                loops = Arrays.copyOf(loops, Math.max(4, depth * 2));
+                            }
+                            loops[depth++] = iterator;
+                            data.define(tag.getDefinedSlot(), iterator.next());
+                        } else {
+                            next = args[pc];
+                        }
+                    }
+                    case FOR_DELIM -> next = loops[depth - 1].hasNext() ? next : args[pc];
+                    case FOR_NEXT -> {
+                        data.undefine(args[pc]);
+                        data.define(args[pc], loops[depth - 1].next());
+                    }
+                    case FOR_END -> {
+                        data.undefine(args[pc]);
+                        loops[--depth] = null;
+                    }
+                    case CALL -> {
+                        MacroTag.Call call = (MacroTag.Call) operands[pc];
+                        call.bind(tokens[pc], data);
+                        call.getBody().run(data, output);
+                        call.unbind(data);
+                    }
+                    default -> ((Resolver) operands[pc]).resolve(tokens[pc], data, output);
+                }
+                pc = next;
+            }
+        } catch (ResolverException e) {
+            addLocations(e, pc);
+            throw e;
+        }
+    }
+
+    /**
+     * Adds the locations the resolvers would have added, namely of the failed instruction if it handles a tag
+     * which reports its location and of all enclosing tags.
+     */
+    private void addLocations(ResolverException e, int pc) {
+        if (ops[pc] != TEXT && ops[pc] != EXEC && tokens[pc] != null) {
+            e.addLocation(tokens[pc]);
+        }
+        for (int scope = scopes[pc]; scope >= 0; scope = scopes[scope]) {
+            e.addLocation(tokens[scope]);
+        }
+    }
+
+    /**
+     * Collects the instructions.
+     */
+    private static final class Builder {
+
+        private final List<Integer> ops = new ArrayList<>();
+
+        private final List<Integer> args = new ArrayList<>();
+
+        private final List<Object> operands = new ArrayList<>();
+
+        private final List<Token> tokens = new ArrayList<>();
+
+        private final List<Integer> scopes = new ArrayList<>();
+
+        void lower(Map<Token, Resolver> content, int scope) {
+            for (Map.Entry<Token, Resolver> entry : content.entrySet()) {
+                lower(entry.getKey(), entry.getValue(), scope);
+            }
+        }
+
+        private void lower(Token token, Resolver resolver, int scope) {
+            if (EasyTagFactory.IDENTITY.equals(resolver)) {
+                add(TEXT, 0, new StaticText(token.getContent()), null, scope);
+            } else if (resolver instanceof StaticText) {
+                add(TEXT, 0, resolver, null, scope);
+            } else if (resolver instanceof InsertValueTag tag) {
+                add(VALUE, 0, tag.getValue(), token, scope);
+            } else if (resolver instanceof IfTag tag) {
+                lowerIf(token, tag, scope);
+            } else if (resolver instanceof ForTag tag) {
+                lowerFor(token, tag, scope);
+            } else if (resolver instanceof MacroTag.Call call) {
+                add(CALL, 0, call, token, scope);
+            } else if (resolver instanceof MarkupOnlyTag tag) {
+                lowerMarkupOnly(tag, scope);
+            } else if (!(resolver instanceof DefineTag || resolver instanceof SkipTag)) {
+                add(EXEC, 0, resolver, token, scope);
+            }
+        }
+
+        private void lowerMarkupOnly(MarkupOnlyTag tag, int scope) {
+            tag.content.forEach((t, r) -> {
+                if (r.resolvesSpecialMarkup()) {
+                    lower(t, r, scope);
+                }
+            });
+        }
+
+        private void lowerIf(Token token, IfTag tag, int scope) {
+            int condition = add(IF, 0, tag, token, scope);
+            lower(tag.content, condition);
+            int jump = add(JUMP, 0, null, null, scope);
+            args.set(condition, ops.size());
+            lower(tag.otherContent, condition);
+            args.set(jump, ops.size());
+            add(UNDEFINE, IfTag.VALUE_SLOT, null, null, scope);
+        }
+
+        /**
+         * Lowers a loop into
+         *
+         * <pre>
+         *     FOR end
+         * body: content
+         *     FOR_DELIM last
+         *     other content
+         *     FOR_NEXT slot
+         *     JUMP body
+         * last: FOR_END slot
+         * end:
+         * </pre>
+         */
+        private void lowerFor(Token token, ForTag tag, int scope) {
+            int slot = tag.getDefinedSlot();
+            int loop = add(FOR, 0, tag, token, scope);
+            int body = ops.size();
+            lower(tag.content, loop);
+            int delim = add(FOR_DELIM, 0, tag, token, scope);
+            lower(tag.otherContent, loop);
+            add(FOR_NEXT, slot, tag, token, scope);
+            add(JUMP, body, null, null, scope);
+            args.set(delim, ops.size());
+            add(FOR_END, slot, tag, token, scope);
+            args.set(loop, ops.size());
+        }
+
+        private int add(int op, int arg, Object operand, Token token, int scope) {
+            ops.add(op);
+            args.add(arg);
+            operands.add(operand);
+            tokens.add(token);
+            scopes.add(scope);
+            return ops.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package de.tautenhahn.easydata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.tautenhahn.easydata.AccessibleData.ListMode;
+import de.tautenhahn.easydata.json.ProjectingJsonLoader;
+
+
+/**
+ * Finds the data paths read by the resolvers of a template. Names defined by FOR, IF, SET and macro parameters
+ * are replaced by the paths of their values, elements of collections are addressed by
+ * {@link ProjectingJsonLoader#ANY}. Where a defined name is not used, the whole value is needed because it is
+ * evaluated anyway. Paths computed while rendering, by <code>${...}</code> or the USE tag, are not known
+ * beforehand, same with resolvers of tag types registered by the caller.
+ *
+ * @author TT
+ */
+final class ReferencedPaths {
+
+    private final Set<String> result = new TreeSet<>();
+
+    /**
+     * Names currently defined, innermost last.
+     */
+    private final List<Definition> definitions = new ArrayList<>();
+
+    private boolean dynamic;
+
+    private ReferencedPaths() {
+        // use of()
+    }
+
+    /**
+     * Analyzes a template.
+     *
+     * @param content tokens with their resolvers as created by the factory
+     * @return dot separated paths, empty if the paths are computed while rendering
+     */
+    static Optional<Set<String>> of(Map<Token, Resolver> content) {
+        ReferencedPaths analysis = new ReferencedPaths();
+        analysis.visit(content);
+        List.copyOf(analysis.definitions).forEach(analysis::close);
+        return analysis.dynamic ? Optional.empty() : Optional.of(analysis.result);
+    }
+
+    private void visit(Map<Token, Resolver> content) {
+        content.values().forEach(this::visit);
+    }
+
+    private void visit(Resolver resolver) {
+        if (resolver instanceof InsertValueTag tag) {
+            read(tag.getValue());
+        } else if (resolver instanceof IfTag tag) {
+            visitIf(tag);
+        } else if (resolver instanceof ForTag tag) {
+            visitFor(tag);
+        } else if (resolver instanceof SetTag tag) {
+            define(tag.getSlot(), valuePaths(tag.getValue()), true);
+        } else if (resolver instanceof MacroTag.Call call) {
+            visitCall(call);
+        } else if (resolver instanceof IndentTag || resolver instanceof MarkupOnlyTag
+                   || resolver instanceof ReplacementTag) {
+            visit(((ComplexTag) resolver).content);
+            visit(((ComplexTag) resolver).otherContent);
+        } else {
+            dynamic |= !(EasyTagFactory.IDENTITY.equals(resolver) || resolver instanceof StaticText
+                         || resolver instanceof DefineTag || resolver instanceof SkipTag);
+        }
+    }
+
+    /**
+     * VALUE may be undefined again by a nested IF, so it is resolved as data as well.
+     */
+    private void visitIf(IfTag tag) {
+        Optional<Expression> comparedValue = tag.getComparedValue();
+        if (comparedValue.isPresent()) {
+            read(tag.getCondition());
+            read(comparedValue.get());
+            visit(tag.content);
+        } else {
+            Definition value = define(IfTag.VALUE_SLOT, valuePaths(tag.getCondition()), true);
+            visit(tag.content);
+            close(value);
+        }
+        visit(tag.otherContent);
+    }
+
+    private void visitFor(ForTag tag) {
+        List<List<String>> elements = new ArrayList<>();
+        List<List<String>> collections = valuePaths(tag.getCollection());
+        if (tag.getMode() == ListMode.KEYS) {
+            collections.forEach(this::add);
+        } else {
+            collections.forEach(c -> elements.add(append(append(c, ProjectingJsonLoader.ANY), tag.getSelectPath())));
+        }
+        if (tag.isSorted() && tag.getOrderPath() != null) {
+            elements.forEach(e -> add(append(e, tag.getOrderPath())));
+        } else if (tag.isSorted() || tag.isUnique()) {
+            elements.forEach(this::add);
+        }
+        Definition element = define(tag.getDefinedSlot(), elements, false);
+        visit(tag.content);
+        visit(tag.otherContent);
+        close(element);
+    }
+
+    /**
+     * Parameters are defined one after the other, so a parameter value may refer to the previous parameters.
+     */
+    private void visitCall(MacroTag.Call call) {
+        List<Definition> params = new ArrayList<>();
+        int[] slots = call.getParamSlots();
+        for (int i = 0; i < slots.length; i++) {
+            params.add(define(slots[i], valuePaths(call.getParams().get(i)), false));
+        }
+        visit(call.getContent());
+        params.forEach(this::close);
+    }
+
+    /**
+     * Adds the paths of all values read by an expression.
+     */
+    private void read(Expression expression) {
+        Optional<List<String[]>> paths = expression.getReadPaths();
+        if (paths.isEmpty()) {
+            dynamic = true;
+            return;
+        }
+        paths.get().forEach(p -> resolve(p, definitions.size()).forEach(this::add));
+    }
+
+    /**
+     * @return paths the value of an expression may come from, empty if it is not a value from the data
+     */
+    private List<List<String>> valuePaths(Expression expression) {
+        Optional<String[]> path = expression.getPath();
+        if (path.isEmpty()) {
+            read(expression);
+            return List.of();
+        }
+        return resolve(path.get(), definitions.size());
+    }
+
+    /**
+     * Replaces a defined name at the start of a path by the paths of its value.
+     *
+     * @param end number of definitions to consider, the innermost ones are skipped
+     */
+    private List<List<String>> resolve(String[] path, int end) {
+        int slot = RenderContext.existingSlotOf(path[0]);
+        List<String> rest = Arrays.asList(path).subList(1, path.length);
+        for (int i = end - 1; i >= 0; i--) {
+            Definition definition = definitions.get(i);
+            if (definition.slot == slot) {
+                definition.used = true;
+                List<List<String>> resolved = new ArrayList<>();
+                definition.values.forEach(v -> resolved.add(append(v, rest)));
+                if (definition.optional) {
+                    resolved.addAll(resolve(path, i));
+                }
+                return resolved;
+            }
+        }
+        return List.of(Arrays.asList(path));
+    }
+
+    private Definition define(int slot, List<List<String>> values, boolean optional) {
+        Definition definition = new Definition(slot, values, optional);
+        definitions.add(definition);
+        return definition;
+    }
+
+    /**
+     * Ends the scope of a definition. Values not used by the template are still evaluated, thus needed completely.
+     */
+    private void close(Definition definition) {
+        if (!definition.used) {
+            definition.values.forEach(this::add);
+        }
+        definitions.remove(definition);
+    }
+
+    private void add(List<String> path) {
+        result.add(String.join(".", path));
+    }
+
+    private static List<String> append(List<String> path, String... names) {
+        return append(path, names == null ? List.of() : Arrays.asList(names));
+    }
+
+    private static List<String> append(List<String> path, List<String> names) {
+        List<String> appended = new ArrayList<>(path);
+        appended.addAll(names);
+        return appended;
+    }
+
+    /**
+     * Name defined while rendering.
+     */
+    private static final class Definition {
+
+        private final int slot;
+
+        /**
+         * Paths the value may come from, empty if it does not come from the data.
+         */
+        private final List<List<String>> values;
+
+        /**
+         * Name may be undefined or have another value where it is used.
+         */
+        private final boolean optional;
+
+        private boolean used;
+
+        Definition(int slot, List<List<String>> values, boolean optional) {
+            this.slot = slot;
+            this.values = values;
+            this.optional = optional;
+        }
+    }
+}
@@ -24,13 +24,4 @@ final class RegexHelper
 
     return (SPECIAL_CHARS.indexOf(value) >= 0 ? "\\" : "") + value;
   }
-
-  /**
-   * @return true if regex matches a unique line break
-   * @param regex input
-   */
-  public static boolean isLineBreak(String regex)
-  {
-    return "\n".equals(regex) || "\r\n".equals(regex);
-  }
 }
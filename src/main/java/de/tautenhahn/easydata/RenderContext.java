@@ -0,0 +1,199 @@
+package de.tautenhahn.easydata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Holds everything which changes while a template is resolved, namely the values defined by tags, the
+ * replacements and the recorded read misses. Keeping that state apart from the wrapped data allows several
+ * threads to render the same data at the same time, each with its own context. Instances are not thread-safe.
+ * <br>
+ * Each name which may be defined by a tag gets a global slot number once, tags look it up when they are created.
+ * Values defined by a name are kept in a stack of their own indexed by that slot, so shadowing and restoring values
+ * as needed by recursive macros does not allocate anything once the stacks are big enough. Names which occur only at
+ * runtime never get a slot because slots are not freed. Values defined by such a name are kept by name instead.
+ *
+ * @author TT
+ */
+final class RenderContext {
+
+    private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger SLOT_COUNT = new AtomicInteger();
+
+    /**
+     * Returned by {@link #existingSlotOf(String)} for a name without slot. Nothing is ever defined in that slot.
+     */
+    static final int NO_SLOT = -1;
+
+    /**
+     * Slot of the pseudo value holding the recorded read misses.
+     */
+    static final int VALUE_READ_MISSES_SLOT = slotOf(AccessibleData.VALUE_READ_MISSES);
+
+    private Object[][] stacks = new Object[16][];
+
+    private int[] depths = new int[16];
+
+    private final Map<String, List<Object>> definedByName = new HashMap<>();
+
+    private final Map<String, String> replacements = new HashMap<>();
+
+    private final List<String> valueReadMisses = new ArrayList<>();
+
+    /**
+     * @return new context with copies of the values and replacements defined in this one, without read misses
+     */
+    RenderContext copy() {
+        RenderContext result = new RenderContext();
+        result.depths = depths.clone();
+        result.stacks = new Object[stacks.length][];
+        for (int i = 0; i < stacks.length; i++) {
+            result.stacks[i] = stacks[i] == null ? null : stacks[i].clone();
+        }
+        definedByName.forEach((name, stack) -> result.definedByName.put(name, new ArrayList<>(stack)));
+        result.replacements.putAll(replacements);
+        return result;
+    }
+
+    /**
+     * Allocates a slot if there is none yet. Call this only with names given by a template, never with names
+     * computed while rendering.
+     *
+     * @param name simple name
+     * @return slot number to define and read values of that name with, same for all instances
+     */
+    static int slotOf(String name) {
+        Integer result = SLOTS.get(name);
+        return result == null ? SLOTS.computeIfAbsent(name, n -> SLOT_COUNT.getAndIncrement()) : result;
+    }
+
+    /**
+     * @param name simple name
+     * @return slot number of that name or {@link #NO_SLOT} if no template defines that name
+     */
+    static int existingSlotOf(String name) {
+        return SLOTS.getOrDefault(name, NO_SLOT);
+    }
+
+    /**
+     * @param slot as obtained by {@link #slotOf(String)} or {@link #existingSlotOf(String)}
+     * @return true if a value has been defined in that slot. Recorded read misses count as defined value.
+     */
+    boolean isDefined(int slot) {
+        return slot >= 0 && slot < depths.length && depths[slot] > 0
+                || slot == VALUE_READ_MISSES_SLOT && !valueReadMisses.isEmpty();
+    }
+
+    /**
+     * @param name simple name
+     * @return true if a value has been defined by that name without using a slot
+     */
+    boolean isDefined(String name) {
+        return !definedByName.isEmpty() && definedByName.containsKey(name);
+    }
+
+    /**
+     * @param name simple name, must be defined without slot
+     * @return value defined last by that name
+     */
+    Object getDefined(String name) {
+        List<Object> stack = definedByName.get(name);
+        return stack.get(stack.size() - 1);
+    }
+
+    /**
+     * Defines a value in the slot of that name if it has one, by name otherwise.
+     *
+     * @param name  simple name
+     * @param value anything
+     */
+    void define(String name, Object value) {
+        int slot = existingSlotOf(name);
+        if (slot == NO_SLOT) {
+            definedByName.computeIfAbsent(name, n -> new ArrayList<>()).add(value);
+        } else {
+            define(slot, value);
+        }
+    }
+
+    /**
+     * Removes the value defined last by that name, if any.
+     *
+     * @param name simple name
+     */
+    void undefine(String name) {
+        int slot = existingSlotOf(name);
+        if (isDefined(slot) || !isDefined(name)) {
+            undefine(slot);
+            return;
+        }
+        List<Object> stack = definedByName.get(name);
+        stack.remove(stack.size() - 1);
+        if (stack.isEmpty()) {
+            definedByName.remove(name);
+        }
+    }
+
+    /**
+     * @param slot as obtained by {@link #slotOf(String)}, must be defined
+     * @return value defined last in that slot
+     */
+    Object getDefined(int slot) {
+        return slot == VALUE_READ_MISSES_SLOT ? valueReadMisses : stacks[slot][depths[slot] - 1];
+    }
+
+    /**
+     * Defines a value which shadows any value in the same slot.
+     *
+     * @param slot  as obtained by {@link #slotOf(String)}
+     * @param value anything
+     */
+    void define(int slot, Object value) {
+        if (slot >= depths.length) {
+            int length = Math.max(slot + 1, depths.length * 2);
+            stacks = Arrays.copyOf(stacks, length);
+            depths = Arrays.copyOf(depths, length);
+        }
+        Object[] stack = stacks[slot];
+        if (stack == null) {
+            stack = new Object[4];
+            stacks[slot] = stack;
+        } else if (depths[slot] == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+            stacks[slot] = stack;
+        }
+        stack[depths[slot]++] = value;
+    }
+
+    /**
+     * Removes the value defined last in that slot, if any.
+     *
+     * @param slot as obtained by {@link #slotOf(String)}
+     */
+    void undefine(int slot) {
+        if (slot >= 0 && slot < depths.length && depths[slot] > 0) {
+            stacks[slot][--depths[slot]] = null;
+        }
+    }
+
+    /**
+     * @return modifiable map of replacements
+     */
+    Map<String, String> getReplacements() {
+        return replacements;
+    }
+
+    /**
+     * @return modifiable list of messages about values which could not be read
+     */
+    List<String> getValueReadMisses() {
+        return valueReadMisses;
+    }
+}
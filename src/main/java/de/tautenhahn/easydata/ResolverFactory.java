@@ -1,6 +1,8 @@
 package de.tautenhahn.easydata;
 
 import java.util.Iterator;
+import java.util.function.Function;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 
@@ -29,6 +31,31 @@ public interface ResolverFactory
    */
   void register(Pattern pattern, Resolver value);
 
+  /**
+   * Registers a further tag type. Other than in {@link #register(Pattern, Resolver)}, a new resolver is created
+   * for each occurrence of the tag which may keep pre-computed information about it. The default implementation
+   * exists for factories written before this method was added: it registers a resolver which matches the tag
+   * content and creates the resolver each time the tag is resolved.
+   *
+   * @param pattern to recognize the tag by
+   * @param creator creates the resolver from the matched tag content
+   */
+  default void register(Pattern pattern, Function<Matcher, Resolver> creator)
+  {
+    String sample = nameToTag("x");
+    int prefixLength = sample.indexOf('x');
+    int suffixLength = sample.length() - prefixLength - 1;
+    register(pattern, (start, data, output) -> {
+      String tag = start.getContent();
+      Matcher matcher = pattern.matcher(tag.substring(prefixLength, tag.length() - suffixLength).stripLeading());
+      if (!matcher.matches())
+      {
+        throw new IllegalArgumentException("unrecognized token " + start);
+      }
+      creator.apply(matcher).resolve(start, data, output);
+    });
+  }
+
   /**
    * @param name tag content
    * @return tag including braces and marker
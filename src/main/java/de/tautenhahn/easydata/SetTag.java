@@ -19,17 +19,36 @@ public class SetTag implements Resolver
   public static final Pattern PATTERN = Pattern.compile("SET +(\\w+) *= *("
                                                         + InsertValueTag.REGEX_SIMPLE_EXPRESSION + ") *");
 
-  private final Matcher start;
+  private final int slot;
+
+  private final Expression value;
 
   SetTag(Matcher start)
   {
-    this.start = start;
+    slot = RenderContext.slotOf(start.group(1));
+    value = Expression.parse(start.group(2));
+  }
+
+  /**
+   * @return slot of the name the value is defined by
+   */
+  int getSlot()
+  {
+    return slot;
+  }
+
+  /**
+   * @return expression computing the value
+   */
+  Expression getValue()
+  {
+    return value;
   }
 
   @Override
   public void resolve(Token startTag, AccessibleData data, Writer output)
   {
-    data.define(start.group(1), data.get(start.group(2)));
+    data.define(slot, value.evaluate(data));
   }
 
 }
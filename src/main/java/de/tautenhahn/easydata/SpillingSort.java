@@ -0,0 +1,234 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+import de.tautenhahn.easydata.json.Snapshot;
+
+
+/**
+ * Sorts elements holding only a limited number of them in memory. Keys are computed and repeated elements are
+ * skipped while the elements are collected. Whenever the limit is reached, the elements collected so far are sorted
+ * and written to a temporary file. These sorted parts are merged while the result is iterated, skipping elements
+ * repeated in different parts. If all elements fit into memory, no file is written. <br>
+ * Order and skipped elements are the same as by sorting all elements at once and skipping repeated ones
+ * afterwards: equal keys keep the order of their elements and of two equal elements the first one is kept. Equal
+ * elements have equal keys, so skipping them before sorting does not change the result. <br>
+ * Only elements which are read back unchanged, like data read from JSON, are written to files, see {@link
+ * Snapshot#preserves(Object)}. As soon as another element is collected, all further elements are kept in memory, so
+ * the result never depends on the buffer size. Files are deleted when the result has been read completely or when it
+ * is no longer referenced.
+ *
+ * @author TT
+ */
+final class SpillingSort {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private SpillingSort() {
+        // static only
+    }
+
+    /**
+     * Returns the sorted elements.
+     *
+     * @param elements   content to sort, iterated completely before this method returns
+     * @param keyOf      computes the key to sort an element by
+     * @param ascending  specifies order
+     * @param unique     true to skip repeated elements
+     * @param bufferSize maximum number of elements held in memory
+     * @return sorted elements, files are deleted when the last one has been read
+     */
+    static Iterator<Object> sort(Iterator<Object> elements,
+                                 Function<Object, Object> keyOf,
+                                 boolean ascending,
+                                 boolean unique,
+                                 int bufferSize) {
+        List<Path> files = new ArrayList<>();
+        boolean complete = false;
+        try {
+            Iterator<Object> result = collect(elements, keyOf, ascending, unique, bufferSize, files);
+            complete = true;
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!complete) {
+                files.forEach(SpillingSort::delete);
+            }
+        }
+    }
+
+    private static Iterator<Object> collect(Iterator<Object> elements,
+                                            Function<Object, Object> keyOf,
+                                            boolean ascending,
+                                            boolean unique,
+                                            int bufferSize,
+                                            List<Path> files) throws IOException {
+        List<KeySort.Keyed> buffer = new ArrayList<>();
+        Set<Object> collected = new HashSet<>();
+        boolean spillable = bufferSize < Integer.MAX_VALUE;
+        while (elements.hasNext()) {
+            Object element = elements.next();
+            if (!unique || collected.add(element)) {
+                buffer.add(KeySort.Keyed.of(element, keyOf.apply(element)));
+                spillable = spillable && Snapshot.preserves(element);
+            }
+            if (spillable && buffer.size() >= bufferSize) {
+                files.add(spill(buffer, ascending));
+                buffer.clear();
+                collected.clear();
+            }
+        }
+        KeySort.sort(buffer, ascending);
+        if (files.isEmpty()) {
+            return buffer.stream().map(KeySort.Keyed::element).iterator();
+        }
+        List<Iterator<KeySort.Keyed>> parts = new ArrayList<>();
+        for (Path file : files) {
+            parts.add(withKeys(Snapshot.readValues(file), keyOf));
+        }
+        parts.add(buffer.iterator());
+        return new Merge(parts, files, ascending, unique);
+    }
+
+    private static Path spill(List<KeySort.Keyed> buffer, boolean ascending) throws IOException {
+        KeySort.sort(buffer, ascending);
+        Path file = Files.createTempFile("easydata", ".sort");
+        Snapshot.writeValues(() -> buffer.stream().map(KeySort.Keyed::element).iterator(), file);
+        return file;
+    }
+
+    private static Iterator<KeySort.Keyed> withKeys(Iterator<Object> elements, Function<Object, Object> keyOf) {
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return elements.hasNext();
+            }
+
+            @Override
+            public KeySort.Keyed next() {
+                Object element = elements.next();
+                return KeySort.Keyed.of(element, keyOf.apply(element));
+            }
+        };
+    }
+
+    /**
+     * Mapped files may not be deletable on some systems before the mapping is garbage collected, those remain in
+     * the temporary directory.
+     */
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) // NOPMD file is deleted on exit
+        {
+            // empty on purpose
+        }
+    }
+
+    /**
+     * Current element of a sorted part.
+     */
+    private record Head(KeySort.Keyed keyed, int part) {
+    }
+
+    /**
+     * Merges the sorted parts, taking the next element from the part with the smallest current key. Of equal
+     * keys, the element of the first part wins. The files are deleted after the last element or when the merge is
+     * garbage collected before.
+     */
+    private static final class Merge implements Iterator<Object> {
+
+        private final List<Iterator<KeySort.Keyed>> parts;
+
+        private final Cleaner.Cleanable cleanup;
+
+        private final boolean ascending;
+
+        private final PriorityQueue<Head> heads;
+
+        /**
+         * Elements already returned with the current key, null if repeated elements are not skipped.
+         */
+        private final Set<Object> returned;
+
+        private KeySort.Keyed lastKey;
+
+        private Object following;
+
+        private boolean available;
+
+        Merge(List<Iterator<KeySort.Keyed>> parts, List<Path> files, boolean ascending, boolean unique) {
+            this.parts = parts;
+            cleanup = CLEANER.register(this, () -> files.forEach(SpillingSort::delete));
+            this.ascending = ascending;
+            returned = unique ? new HashSet<>() : null;
+            heads = new PriorityQueue<>(Math.max(1, parts.size()), (a, b) -> {
+                int result = KeySort.compare(a.keyed(), b.keyed(), ascending);
+                return result == 0 ? Integer.compare(a.part(), b.part()) : result;
+            });
+            for (int i = 0; i < parts.size(); i++) {
+                advance(i);
+            }
+            findNext();
+        }
+
+        private void advance(int part) {
+            if (parts.get(part).hasNext()) {
+                heads.add(new Head(parts.get(part).next(), part));
+            }
+        }
+
+        private void findNext() {
+            available = false;
+            while (!available && !heads.isEmpty()) {
+                Head head = heads.poll();
+                advance(head.part());
+                available = isNew(head.keyed());
+                following = head.keyed().element();
+            }
+            if (!available) {
+                cleanup.clean();
+            }
+        }
+
+        private boolean isNew(KeySort.Keyed keyed) {
+            if (returned == null) {
+                return true;
+            }
+            if (lastKey == null || KeySort.compare(lastKey, keyed, ascending) != 0) {
+                returned.clear();
+                lastKey = keyed;
+            }
+            return returned.add(keyed.element());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return available;
+        }
+
+        @Override
+        public Object next() {
+            if (!available) {
+                throw new NoSuchElementException();
+            }
+            Object result = following;
+            findNext();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Resolver for template text outside special tags in a compiled template. The text is encoded once when the
+ * template is compiled and written as bytes whenever the output is a {@link Utf8Writer}.
+ *
+ * @author TT
+ */
+final class StaticText implements Resolver {
+
+    private final String text;
+
+    private final byte[] encoded;
+
+    /**
+     * Creates instance.
+     *
+     * @param text template text
+     */
+    StaticText(String text) {
+        this.text = text;
+        encoded = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the text, already encoded if possible.
+     *
+     * @param output  where to write to
+     * @param text    template text
+     * @param encoded UTF-8 representation of that text
+     * @throws IOException in case of streaming problems
+     */
+    static void write(Writer output, String text, byte[] encoded) throws IOException {
+        if (output instanceof Utf8Writer utf8) {
+            utf8.writeEncoded(encoded);
+        } else {
+            output.write(text);
+        }
+    }
+
+    @Override
+    public void resolve(Token start, AccessibleData data, Writer output) throws IOException {
+        write(output, text, encoded);
+    }
+
+    @Override
+    public boolean resolvesSpecialMarkup() {
+        return false;
+    }
+
+    /**
+     * @return UTF-8 representation of the text
+     */
+    byte[] getEncoded() {
+        return encoded;
+    }
+}
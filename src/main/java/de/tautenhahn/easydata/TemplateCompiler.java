@@ -0,0 +1,355 @@
+package de.tautenhahn.easydata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+
+/**
+ * Turns a resolver tree into a class of its own. Static text becomes string constants, inserted values,
+ * conditions, loops and macro calls become Java statements, all other tags are executed by their resolver. The
+ * generated source is compiled by the Java compiler of the running JDK and defined as a hidden class, so the
+ * JIT sees real loops and branches over final fields. Results and error messages are the same as resolving the
+ * tree. A runtime without the module java.compiler cannot even load this class, see
+ * {@link CompiledTemplate#setEngine(CompiledTemplate.Engine)}.
+ *
+ * @author TT
+ */
+final class TemplateCompiler {
+
+    private static final String CLASS_NAME = "GeneratedTemplate";
+
+    private static final System.Logger LOG = System.getLogger(TemplateCompiler.class.getName());
+
+    /**
+     * Keeps generated methods small enough to be compiled and inlined.
+     */
+    private static final int STATEMENTS_PER_METHOD = 32;
+
+    private static final String ARGUMENTS = "(data, out);";
+
+    private final StringBuilder fields = new StringBuilder();
+
+    private final StringBuilder assignments = new StringBuilder();
+
+    private final StringBuilder methods = new StringBuilder();
+
+    private final List<Object> operands = new ArrayList<>();
+
+    private final Map<Map<Token, Resolver>, String> macroBodies = new IdentityHashMap<>();
+
+    private int methodCount;
+
+    private TemplateCompiler() {
+        // use compile()
+    }
+
+    /**
+     * Creates a resolver for the whole content.
+     *
+     * @param content tokens with their resolvers as created by the factory
+     * @return resolver of a generated class, empty if no Java compiler is available or compiling fails
+     */
+    static Optional<Resolver> compile(Map<Token, Resolver> content) {
+        return compile(content, ToolProvider.getSystemJavaCompiler());
+    }
+
+    /**
+     * Same as {@link #compile(Map)} with a given Java compiler.
+     *
+     * @param content  tokens with their resolvers as created by the factory
+     * @param javac    Java compiler, null if there is none as in a runtime without JDK tools
+     * @return resolver of a generated class, empty if there is no compiler or compiling fails
+     */
+    static Optional<Resolver> compile(Map<Token, Resolver> content, JavaCompiler javac) {
+        if (javac == null) {
+            return Optional.empty();
+        }
+        TemplateCompiler compiler = new TemplateCompiler();
+        String entry = compiler.method(content);
+        return toClassFile(javac, compiler.source(entry)).flatMap(compiler::instantiate);
+    }
+
+    /**
+     * @param entry name of the method writing the whole content
+     * @return Java source of the generated class
+     */
+    private String source(String entry) {
+        return "package " + TemplateCompiler.class.getPackageName() + ";\n\n" + "final class " + CLASS_NAME
+                + " implements Resolver {\n" + fields + "\n    " + CLASS_NAME + "(Object[] operands) {\n"
+                + assignments + "    }\n\n    @Override\n    public void resolve(Token start, AccessibleData data,"
+                + " java.io.Writer out) throws java.io.IOException {\n        " + entry + ARGUMENTS + "\n    }\n"
+                + methods + "}\n";
+    }
+
+    /**
+     * Generates methods writing the content.
+     *
+     * @return name of the method to call
+     */
+    private String method(Map<Token, Resolver> content) {
+        String name = "m" + methodCount++;
+        List<String> statements = new ArrayList<>();
+        content.forEach((token, resolver) -> addStatements(token, resolver, statements));
+        String current = name;
+        int start = 0;
+        do {
+            int end = Math.min(start + STATEMENTS_PER_METHOD, statements.size());
+            methods.append("\n    private void ").append(current)
+                    .append("(AccessibleData data, java.io.Writer out) throws java.io.IOException {\n");
+            statements.subList(start, end).forEach(s -> methods.append("        ").append(s).append('\n'));
+            if (end < statements.size()) {
+                current = "m" + methodCount++;
+                methods.append("        ").append(current).append(ARGUMENTS).append('\n');
+            }
+            methods.append("    }\n");
+            start = end;
+        } while (start < statements.size());
+        return name;
+    }
+
+    private void addStatements(Token token, Resolver resolver, List<String> statements) {
+        if (resolver instanceof InsertValueTag tag) {
+            statements.add(located(token, "out.write(data.getString(" + operand(tag.getValue(), "Expression")
+                    + "));"));
+        } else if (resolver instanceof IfTag tag) {
+            addIf(token, tag, statements);
+        } else if (resolver instanceof ForTag tag) {
+            statements.add(loop(token, tag));
+        } else if (resolver instanceof MacroTag.Call call) {
+            String ref = operand(call, "MacroTag.Call");
+            statements.add(located(token, ref + ".bind(" + operand(token, "Token") + ", data); "
+                    + macroBody(call.getContent()) + ARGUMENTS + " " + ref + ".unbind(data);"));
+        } else if (resolver instanceof MarkupOnlyTag tag) {
+            addMarkupOnly(tag, statements);
+        } else if (EasyTagFactory.IDENTITY.equals(resolver) || resolver instanceof StaticText) {
+            statements.add("StaticText.write(out, " + literal(token.getContent()) + ", "
+                    + operand(encode(token, resolver), "byte[]") + ");");
+        } else if (!(resolver instanceof DefineTag || resolver instanceof SkipTag)) {
+            statements.add(operand(resolver, "Resolver") + ".resolve(" + operand(token, "Token") + ", data, out);");
+        }
+    }
+
+    private static byte[] encode(Token token, Resolver resolver) {
+        return (resolver instanceof StaticText text ? text : new StaticText(token.getContent())).getEncoded();
+    }
+
+    private void addMarkupOnly(MarkupOnlyTag tag, List<String> statements) {
+        tag.content.forEach((token, resolver) -> {
+            if (resolver.resolvesSpecialMarkup()) {
+                addStatements(token, resolver, statements);
+            }
+        });
+    }
+
+    private void addIf(Token token, IfTag tag, List<String> statements) {
+        statements.add(located(token, "if (" + operand(tag, "IfTag") + ".conditionSatisfied(data)) { "
+                + method(tag.content) + ARGUMENTS + " } else { " + method(tag.otherContent) + ARGUMENTS + " }"));
+        statements.add("data.undefine(" + IfTag.VALUE_SLOT + ");");
+    }
+
+    private String loop(Token token, ForTag tag) {
+        int slot = tag.getDefinedSlot();
+        return located(token, "for (java.util.Iterator<Object> it = " + operand(tag, "ForTag")
+                + ".getIterator(data); it.hasNext(); ) { data.define(" + slot + ", it.next()); "
+                + method(tag.content) + ARGUMENTS + " if (it.hasNext()) { " + method(tag.otherContent) + ARGUMENTS
+                + " } data.undefine(" + slot + "); }");
+    }
+
+    /**
+     * Each macro body becomes one method which is shared by all calls, even recursive ones.
+     */
+    private String macroBody(Map<Token, Resolver> content) {
+        String name = macroBodies.get(content);
+        if (name == null) {
+            name = "m" + methodCount;
+            macroBodies.put(content, name);
+            method(content);
+        }
+        return name;
+    }
+
+    /**
+     * Wraps statements to add the location of the tag to errors, as the resolver of that tag does.
+     */
+    private String located(Token token, String statements) {
+        return "try { " + statements + " } catch (ResolverException e) { throw e.addLocation("
+                + operand(token, "Token") + "); }";
+    }
+
+    private String operand(Object value, String type) {
+        String name = "o" + operands.size();
+        fields.append("    private final ").append(type).append(' ').append(name).append(";\n");
+        assignments.append("        ").append(name).append(" = (").append(type).append(") operands[")
+                .append(operands.size()).append("];\n");
+        operands.add(value);
+        return name;
+    }
+
+    private static String literal(String text) {
+        StringBuilder result = new StringBuilder("\"");
+        text.chars().forEach(c -> {
+            switch (c) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                case '\n' -> result.append("\\n");
+                case '\r' -> result.append("\\r");
+                case '\t' -> result.append("\\t");
+                default -> appendCharacter(result, c);
+            }
+        });
+        return result.append('"').toString();
+    }
+
+    /**
+     * Unicode escapes would be translated before parsing the literal, so control characters are written as octal
+     * escapes.
+     */
+    private static void appendCharacter(StringBuilder result, int c) {
+        if (c < ' ') {
+            result.append(String.format("\\%03o", c));
+        } else if (c < 0x7f) {
+            result.append((char) c);
+        } else {
+            result.append(String.format("\\u%04x", c));
+        }
+    }
+
+    private Optional<Resolver> instantiate(byte[] classFile) {
+        try {
+            Class<?> generated = MethodHandles.lookup().defineHiddenClass(classFile, true).lookupClass();
+            return Optional.of((Resolver) generated.getDeclaredConstructor(Object[].class)
+                    .newInstance(new Object[] {operands.toArray()}));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Compiles the generated source. Failing to compile it is a bug of this class, so the compiler messages are
+     * logged before falling back to the resolvers.
+     */
+    private static Optional<byte[]> toClassFile(JavaCompiler compiler, String source) {
+        Optional<String> classPath = classPathOf(TemplateCompiler.class.getProtectionDomain().getCodeSource());
+        if (classPath.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, ByteArrayOutputStream> classFiles = new HashMap<>();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StringWriter output = new StringWriter();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+             JavaFileManager manager = new ClassFileCollector(files, classFiles)) {
+            boolean success = compiler.getTask(output,
+                                               manager,
+                                               diagnostics,
+                                               List.of("-classpath", classPath.get(), "-proc:none", "-g:none"),
+                                               null,
+                                               List.of(new SourceFile(source)))
+                    .call();
+            ByteArrayOutputStream classFile = classFiles.get(TemplateCompiler.class.getPackageName() + "." + CLASS_NAME);
+            if (success && classFile != null) {
+                return Optional.of(classFile.toByteArray());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            output.write(e.toString());
+        }
+        diagnostics.getDiagnostics().forEach(d -> output.write(System.lineSeparator() + d));
+        LOG.log(System.Logger.Level.WARNING, "cannot compile generated template, using resolvers instead: {0}",
+                output);
+        return Optional.empty();
+    }
+
+    /**
+     * The generated class is compiled against the classes of this library, which javac reads from the file
+     * system only. Classes loaded from elsewhere, for instance from a jar nested in an executable jar, cannot be
+     * given to javac.
+     *
+     * @param codeSource where this class was loaded from, may be null
+     * @return class path for javac, empty if the classes were not loaded from a file or directory
+     */
+    static Optional<String> classPathOf(CodeSource codeSource) {
+        URL location = codeSource == null ? null : codeSource.getLocation();
+        if (location != null && "file".equals(location.getProtocol())) {
+            try {
+                return Optional.of(Path.of(location.toURI()).toString());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                LOG.log(System.Logger.Level.INFO, "invalid class path, using resolvers instead", e);
+                return Optional.empty();
+            }
+        }
+        LOG.log(System.Logger.Level.INFO, "generated templates need classes loaded from files, using resolvers "
+                                          + "instead of classes loaded from {0}", location);
+        return Optional.empty();
+    }
+
+    /**
+     * Generated source held in memory.
+     */
+    private static final class SourceFile extends SimpleJavaFileObject {
+
+        private final String content;
+
+        SourceFile(String content) {
+            super(URI.create("string:///" + CLASS_NAME + Kind.SOURCE.extension), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    /**
+     * Keeps the compiled classes in memory instead of writing them to files, one buffer per class name.
+     */
+    private static final class ClassFileCollector extends ForwardingJavaFileManager<JavaFileManager> {
+
+        private final Map<String, ByteArrayOutputStream> targets;
+
+        ClassFileCollector(JavaFileManager fileManager, Map<String, ByteArrayOutputStream> targets) {
+            super(fileManager);
+            this.targets = targets;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location,
+                                                   String className,
+                                                   JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className + kind.extension), kind) {
+
+                @Override
+                public OutputStream openOutputStream() {
+                    ByteArrayOutputStream target = new ByteArrayOutputStream();
+                    targets.put(className, target);
+                    return target;
+                }
+            };
+        }
+    }
+}
@@ -1,10 +1,11 @@
 package de.tautenhahn.easydata;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 /**
@@ -12,71 +13,270 @@ import java.util.regex.Pattern;
  * one separate token. Rest of the content may be in any parts but these should not be too big. <br>
  * Why do I not use a stream? Object streams are bad at iterating things, they tend to create new Spliterator
  * objects at each non-trivial manipulation. An old-fashioned Iterator can be passed between consumers much
- * more elegantly.
+ * more elegantly. <br>
+ * The input is read in chunks of fixed size, so even templates consisting of one huge line (as a word document
+ * does) are never held in memory completely. Recognized are
+ * <ul>
+ * <li>special tags: opening and marker character, content and closing character. The content may contain
+ * pairs of opening and closing character as long as the opening character is not followed by the marker. Tags
+ * never span several lines.</li>
+ * <li>a single opening character which does not start a complete special tag</li>
+ * <li>text, ending after a line break, before an opening character or when the chunk size is reached</li>
+ * </ul>
+ * A line break is added to the last line if it is missing. Memory usage is bounded by the chunk size and the
+ * longest special tag. Only an opening character which looks like the start of a tag but is never closed makes
+ * the tokenizer buffer the rest of that line.
  *
  * @author TT
  */
 public final class Tokenizer implements Iterator<Token> {
 
-    private final Scanner data;
+    /**
+     * Number of characters read at once.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final Reader input;
+
+    private final char opening;
+
+    private final char marker;
+
+    private final char closing;
+
+    private final int chunkSize;
+
+    private char[] buffer;
+
+    private int start;
+
+    private int end;
 
-    private final String delimiter;
+    private boolean exhausted;
 
-    private Matcher pending;
+    private boolean endsWithLineBreak = true;
 
-    private int row;
+    private int row = 1;
 
-    private final Pattern pattern;
+    private int col;
+
+    /**
+     * Start position and position to continue scanning at for each inner pair which still has choices left.
+     */
+    private int[] openPairs = new int[16];
+
+    private int depth;
+
+    private int failFrom;
 
     /**
      * Creates instance.
      *
-     * @param data    must use a delimiter matching a fixed line ending ("\n" or "\r\n")so we can re-insert it.
+     * @param input   template text, is not closed by this object
      * @param opening character opening a special tag
      * @param marker  a second character to open the special tag
      * @param closing character terminating a special tag
      */
-    Tokenizer(Scanner data, char opening, char marker, char closing) {
-        this.data = data;
-        delimiter = data.delimiter().toString();
-        if (!RegexHelper.isLineBreak(delimiter)) {
-            throw new IllegalArgumentException("Scanners delimiter must be a specified line break.");
-        }
-        String open = RegexHelper.mask(opening);
-        String close = RegexHelper.mask(closing);
-        String mmarker = RegexHelper.mask(marker);
-        String regexTag = open + mmarker + "(([^" + open + close + "]|(" + open + "[^" + mmarker + "].*?" + close
-                + "))*)" + close;
-        pattern = Pattern.compile("([^" + open + "]+)|(" + regexTag + ")|(" + open + ")", Pattern.DOTALL);
-        pending = getMatcher();
+    Tokenizer(Reader input, char opening, char marker, char closing) {
+        this(input, opening, marker, closing, DEFAULT_CHUNK_SIZE);
     }
 
+    /**
+     * Creates instance with specified chunk size.
+     *
+     * @param input     template text, is not closed by this object
+     * @param opening   character opening a special tag
+     * @param marker    a second character to open the special tag
+     * @param closing   character terminating a special tag
+     * @param chunkSize number of characters to read at once, also maximum length of text tokens
+     */
+    Tokenizer(Reader input, char opening, char marker, char closing, int chunkSize) {
+        this.input = input;
+        this.opening = opening;
+        this.marker = marker;
+        this.closing = closing;
+        this.chunkSize = chunkSize;
+        buffer = new char[chunkSize];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException in case of streaming problems
+     */
     @Override
     public boolean hasNext() {
-        return pending != null;
+        return charAt(0) >= 0;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException in case of streaming problems
+     */
     @Override
     public Token next() {
-        if (pending == null) {
+        if (!hasNext()) {
             throw new NoSuchElementException();
         }
-        Token result = new Token(pending.group(0), row, pending.start());
-        if (!pending.find()) {
-            pending = getMatcher();
+        int length;
+        if (buffer[start] == opening) {
+            length = charAt(1) == marker ? findTagEnd() : -1;
+            if (length < 0) {
+                length = 1;
+            }
+        } else {
+            length = textLength();
+        }
+        Token result = new Token(new String(buffer, start, length), row, col);
+        start += length;
+        if (buffer[start - 1] == '\n') {
+            row++;
+            col = 0;
+        } else {
+            col += length;
         }
         return result;
     }
 
-    private Matcher getMatcher() {
-        if (data.hasNext()) {
-            Matcher result = pattern.matcher(data.next() + delimiter);
-            row++;
-            if (!result.find()) {
-                throw new IllegalArgumentException("Pattern should always match something: " + pattern);
+    private int textLength() {
+        if (buffer[start] == '\n') {
+            return 1;
+        }
+        int length = 1;
+        while (length < chunkSize) {
+            int c = charAt(length);
+            if (c < 0 || c == opening) {
+                break;
+            }
+            length++;
+            if (c == '\n') {
+                break;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Finds the end of a special tag which starts with opening and marker character. The search follows exactly
+     * the order in which the expression <code>O M ([^OC] | O [^M] .*? C)* C</code> would be matched by a
+     * backtracking regex engine, but without recursion and in linear time. The only real choice is which closing
+     * character ends an inner pair started by an opening character. Once all choices after some inner opening
+     * character failed, any choice further right will fail as well. That position is remembered.
+     *
+     * @return length of the tag or -1 if there is no complete tag
+     */
+    private int findTagEnd() {
+        depth = 0;
+        failFrom = Integer.MAX_VALUE;
+        int position = 2;
+        while (position >= 0) {
+            int special = nextSpecial(position);
+            if (charAt(special) == closing) {
+                return special + 1;
             }
-            return result;
+            if (opensInnerPair(special)) {
+                if (depth == openPairs.length) {
+                    openPairs = Arrays.copyOf(openPairs, depth * 2);
+                }
+                openPairs[depth++] = special;
+                openPairs[depth++] = special + 2;
+            }
+            position = nextChoice();
+        }
+        return -1;
+    }
+
+    private boolean opensInnerPair(int offset) {
+        return charAt(offset) == opening && offset < failFrom && !isLineEnd(offset + 1)
+                && charAt(offset + 1) != marker;
+    }
+
+    /**
+     * Selects the next closing character to end the innermost open pair with. Pairs without further choices are
+     * discarded.
+     *
+     * @return position to continue matching at, -1 if there are no choices left
+     */
+    private int nextChoice() {
+        while (depth > 0) {
+            int candidate = nextClosing(openPairs[depth - 1]);
+            if (candidate >= 0) {
+                openPairs[depth - 1] = candidate + 1;
+                return candidate + 1;
+            }
+            depth -= 2;
+            failFrom = openPairs[depth] + 2;
+        }
+        return -1;
+    }
+
+    private int nextSpecial(int from) {
+        int position = from;
+        for (int c = charAt(position); c != opening && c != closing && c != '\n' && c >= 0; c = charAt(position)) {
+            position++;
+        }
+        return position;
+    }
+
+    private int nextClosing(int from) {
+        for (int position = from; position < failFrom && !isLineEnd(position); position++) {
+            if (charAt(position) == closing) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isLineEnd(int offset) {
+        int c = charAt(offset);
+        return c < 0 || c == '\n';
+    }
+
+    /**
+     * @param offset position relative to the next unread character
+     * @return character at that position or -1 if input ends before
+     */
+    private int charAt(int offset) {
+        while (start + offset >= end) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        return buffer[start + offset];
+    }
+
+    private boolean fill() {
+        if (exhausted) {
+            return false;
+        }
+        if (end == buffer.length) {
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+            } else {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        int read;
+        try {
+            read = input.read(buffer, end, Math.min(chunkSize, buffer.length - end));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (read < 0) {
+            exhausted = true;
+            if (endsWithLineBreak) {
+                return false;
+            }
+            buffer[end++] = '\n';
+            return true;
+        }
+        end += read;
+        if (read > 0) {
+            endsWithLineBreak = buffer[end - 1] == '\n';
         }
-        return null;
+        return true;
     }
 }
@@ -22,23 +22,23 @@ public class UseTag implements Resolver
 
   private final String close;
 
-  UseTag(char opening, char marker, char closing, ResolverFactory factory)
+  private final Expression name;
+
+  private final String params;
+
+  UseTag(Matcher start, char opening, char marker, char closing, ResolverFactory factory)
   {
     this.factory = factory;
     this.op = String.valueOf(new char[]{opening, marker});
     this.close = String.valueOf(closing);
+    name = Expression.parse(start.group(1));
+    params = start.group(2);
   }
 
   @Override
   public void resolve(Token start, AccessibleData data, Writer output) throws IOException
   {
-
-    String str = start.getContent();
-    Matcher m = PATTERN.matcher(str.substring(2, str.length() - 1).trim());
-    if (!m.matches()) {
-      throw new IllegalArgumentException("Unsupported token '"+str+"'");
-    }
-    String translated = op + data.getString(m.group(1)) + m.group(2) + close;
+    String translated = op + data.getString(name) + params + close;
     Token eventualStartToken = new Token(translated, start.getRow(), start.getCol());
     factory.getResolver(eventualStartToken, null).resolve(eventualStartToken, data, output);
   }
@@ -0,0 +1,157 @@
+package de.tautenhahn.easydata;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+
+/**
+ * Buffered writer producing UTF-8. In addition to characters it accepts text which has already been encoded, so
+ * static parts of a compiled template are encoded only once instead of at each rendering. Unpaired surrogates are
+ * written as '?', as an {@link java.io.OutputStreamWriter} does.
+ *
+ * @author TT
+ */
+public final class Utf8Writer extends Writer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Most bytes a single character may need, counting a pending high surrogate as well.
+     */
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private final OutputStream out;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int count;
+
+    private char highSurrogate;
+
+    /**
+     * Creates instance.
+     *
+     * @param out where the bytes are written to, closed when this writer is closed
+     */
+    public Utf8Writer(OutputStream out) {
+        super();
+        this.out = out;
+    }
+
+    /**
+     * Writes text which is already encoded.
+     *
+     * @param encoded UTF-8 bytes of complete characters
+     * @throws IOException in case of streaming problems
+     */
+    public void writeEncoded(byte[] encoded) throws IOException {
+        if (highSurrogate != 0) {
+            encodeUnpaired();
+        }
+        if (encoded.length > buffer.length - count) {
+            flushBuffer();
+            if (encoded.length > buffer.length) {
+                out.write(encoded);
+                return;
+            }
+        }
+        System.arraycopy(encoded, 0, buffer, count, encoded.length);
+        count += encoded.length;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            encode(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            encode(str.charAt(i));
+        }
+    }
+
+    private void encode(char c) throws IOException {
+        if (count > buffer.length - MAX_BYTES_PER_CHAR) {
+            flushBuffer();
+        }
+        if (c < 0x80 && highSurrogate == 0) {
+            buffer[count++] = (byte) c;
+        } else if (highSurrogate != 0 && Character.isLowSurrogate(c)) {
+            encodeCodePoint(Character.toCodePoint(highSurrogate, c));
+            highSurrogate = 0;
+        } else {
+            if (highSurrogate != 0) {
+                encodeUnpaired();
+            }
+            encodeChar(c);
+        }
+    }
+
+    private void encodeChar(char c) {
+        if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[count++] = '?';
+        } else {
+            encodeCodePoint(c);
+        }
+    }
+
+    private void encodeUnpaired() throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = '?';
+        highSurrogate = 0;
+    }
+
+    private void encodeCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            buffer[count++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[count++] = (byte) (0xc0 | codePoint >> 6);
+            buffer[count++] = (byte) (0x80 | codePoint & 0x3f);
+        } else if (codePoint < 0x10000) {
+            buffer[count++] = (byte) (0xe0 | codePoint >> 12);
+            buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+            buffer[count++] = (byte) (0x80 | codePoint & 0x3f);
+        } else {
+            buffer[count++] = (byte) (0xf0 | codePoint >> 18);
+            buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+            buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+            buffer[count++] = (byte) (0x80 | codePoint & 0x3f);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+
+    /**
+     * Writes all buffered bytes. A pending high surrogate is kept until the next character arrives.
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (highSurrogate != 0) {
+            encodeUnpaired();
+        }
+        flush();
+        out.close();
+    }
+}
@@ -1,29 +1,24 @@
 package de.tautenhahn.easydata.docx;
 
 import java.io.FilterInputStream;
-import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 import de.tautenhahn.easydata.AccessibleData;
 import de.tautenhahn.easydata.DataIntoTemplate;
+import de.tautenhahn.easydata.Utf8Writer;
 
 
 /**
  * Can expand macros in Microsoft Word documents. Microsoft Words format DOCX is a ZIP file containing XML
  * contents. It turned out that manipulating the XML file which contains the text content goes a far way to
  * creating the wanted DOCX result. Be aware that complicated manipulations still may break the consistency of
- * the Word document. <br>
+ * the Word document. All other entries of the ZIP file are copied as they are, without unpacking them. <br>
  * When creating DOCX templates with LibreOffice, load and safe the created document a second time. For some
  * reason unknown to me the data content, especially the coding of the special tags, is completely different
  * in the version saved first.
@@ -33,18 +28,18 @@ import de.tautenhahn.easydata.DataIntoTemplate;
 public class DocxAdapter
 {
 
-  private final byte[] buf = new byte[1024 * 4];
+  static final String SPECIAL_ENTRY_NAME = "word/document.xml";
 
-  private static final String SPECIAL_ENTRY_NAME = "word/document.xml";
+  static final String RELATIONS_ENTRY_NAME = "word/_rels/document.xml.rels";
 
-  private static final String RELATIONS_ENTRY_NAME = "word/_rels/document.xml.rels";
-
-  private static final int LIMIT = 1024 * 1024 * 1024;
+  static final int LIMIT = 1024 * 1024 * 1024;
 
   private final DataIntoTemplate expander;
 
   private final MediaProvider media;
 
+  private boolean defragmenting;
+
   /**
    * Creates new instance.
    *
@@ -67,6 +62,18 @@ public class DocxAdapter
     this.media = media;
   }
 
+  /**
+   * Specifies whether special tags split into several runs of the template are collected while the document is
+   * created, as done by {@link StreamingDocxDefragmenter}. This avoids writing and reading a defragmented copy of
+   * the template.
+   *
+   * @param defragmenting default is false
+   */
+  public void setDefragmenting(boolean defragmenting)
+  {
+    this.defragmenting = defragmenting;
+  }
+
   /**
    * Creates the document expanding any special tags in the template.
    *
@@ -76,20 +83,27 @@ public class DocxAdapter
    */
   public void convert(InputStream source, OutputStream destination) throws IOException
   {
-    try (ZipInputStream ins = new ZipInputStream(source);
-      ZipOutputStream out = new ZipOutputStream(destination))
+    try (RawZipReader ins = new RawZipReader(source, LIMIT);
+      RawZipWriter out = new RawZipWriter(destination))
     {
       while (true)
       {
-        ZipEntry entry = ins.getNextEntry();
+        RawZipEntry entry = ins.next();
         if (entry == null)
         {
           break;
         }
-        out.putNextEntry(targetEntry(entry));
-        if (!entry.isDirectory())
+        if (isChanged(entry.name()))
+        {
+          try (InputStream content = ins.open();
+            OutputStream target = out.open(entry.name()))
+          {
+            copyContent(content, target, entry.name());
+          }
+        }
+        else
         {
-          copyContent(ins, out, entry.getName());
+          out.copy(ins);
         }
       }
       if (media != null)
@@ -99,85 +113,38 @@ public class DocxAdapter
     }
   }
 
-  private ZipEntry targetEntry(ZipEntry entry)
+  /**
+   * Other entries are copied without inflating and deflating them.
+   */
+  private boolean isChanged(String name)
   {
-    String name = entry.getName();
-    if (SPECIAL_ENTRY_NAME.equals(name) || media != null && RELATIONS_ENTRY_NAME.equals(name))
-    {
-      return new ZipEntry(name);
-    }
-    return entry;
+    return SPECIAL_ENTRY_NAME.equals(name) || media != null && RELATIONS_ENTRY_NAME.equals(name);
   }
 
   private void copyContent(InputStream ins, OutputStream out, String name) throws IOException
-  {
-    if (SPECIAL_ENTRY_NAME.equals(name))
-    {
-      try (InputStream safe = new SafeInputStream(ins);
-           Reader reader = new InputStreamReader(safe, StandardCharsets.UTF_8);
-           OutputStream nonClosing = new NonClosingOutputStream(out);
-           Writer writer = new OutputStreamWriter(nonClosing, StandardCharsets.UTF_8))
-      {
-        expander.fillData(reader, writer);
-      }
-    }
-    else if (media != null && RELATIONS_ENTRY_NAME.equals(name))
-    {
-      addReferences(ins, out);
-    }
-    else
-    {
-      copy(ins, out);
-    }
-  }
-
-  private void addReferences(InputStream ins, OutputStream out) throws IOException
-  {
-    Charset encoding = StandardCharsets.UTF_8;
-    String content = new String(ins.readAllBytes(), encoding);
-    out.write(content.substring(0, content.indexOf("</Relationships>")).getBytes(encoding));
-    media.writeRefsTo(out);
-    out.write("</Relationships>".getBytes(encoding));
-  }
-
-  private void copy(InputStream ins, OutputStream out) throws IOException
   {
     try (InputStream safe = new SafeInputStream(ins))
     {
-      while (true)
+      if (SPECIAL_ENTRY_NAME.equals(name))
       {
-        int read = safe.read(buf);
-        if (read == -1)
+        try (Reader reader = defragmenting ? new StreamingDocxDefragmenter().reorganizePart(safe)
+          : new InputStreamReader(safe, StandardCharsets.UTF_8);
+          Writer writer = new Utf8Writer(out))
         {
-          return;
+          expander.fillData(reader, writer);
         }
-        out.write(buf, 0, read);
       }
-    }
-  }
-
-  /**
-   * Just to avoid closing the output ZIP before ready,
-   */
-  private static class NonClosingOutputStream extends FilterOutputStream
-  {
-
-    NonClosingOutputStream(OutputStream out)
-    {
-      super(out);
-    }
-
-    @Override
-    public void close()
-    {
-      // not closing on purpose
+      else
+      {
+        media.addRefsTo(safe, out);
+      }
     }
   }
 
   /**
    * Avoids ZIP bombs.
    */
-  private static class SafeInputStream extends FilterInputStream
+  static class SafeInputStream extends FilterInputStream
   {
 
     private int numRead;
@@ -209,7 +176,7 @@ public class DocxAdapter
   /**
    * Masks a few characters to avoid destroying internal XML syntax of the DOCX.
    */
-  private static class SanitizingData extends AccessibleData
+  static class SanitizingData extends AccessibleData
   {
 
     SanitizingData(AccessibleData original)
@@ -65,39 +65,50 @@ public class DocxDefragmenter {
 
     /**
      * Changes the run contents within a paragraph. Note that the setText()-Method does not set the text of a run but
-     * instead appends the given value. To set the value we must call setText(value, 0).
+     * instead appends the given value. To set the value we must call setText(value, 0). Text collected for a tag is
+     * written into its run once when the tag is complete, so each run is read and written at most once.
      *
      * @param paragraph has same content, but no special tag is split into more than one text node
      */
     void reorganizeParagraph(XWPFParagraph paragraph) {
-        XWPFRun runToExtend = null;
+        PendingTag pending = null;
         for (XWPFRun run : paragraph.getRuns()) {
             String text = run.text();
-            if (runToExtend != null || text.indexOf(START) >= 0) {
+            if (pending != null || text.indexOf(START) >= 0) {
                 mergeTextNodes(run);
             }
-            if (runToExtend != null) {
+            if (pending != null) {
                 int endPos = text.indexOf(END);
-                if (cannotBeExtendedToValidTag(runToExtend.text(), text, endPos)) {
-                    runToExtend = null;
+                if (pending.cannotBeExtendedBy(text, endPos)) {
+                    pending.write();
+                    pending = null;
                 } else if (endPos > -1) {
-                    runToExtend.setText(runToExtend.text() + text.substring(0, endPos + 1), 0);
-                    text = text.substring(endPos + 1);
-                    run.setText(text, 0);
-                    changes++;
-                    runToExtend = null;
+                    text = moveIntoTag(pending, run, text, endPos + 1);
+                    pending.write();
+                    pending = null;
                 } else {
-                    runToExtend.setText(runToExtend.text() + text, 0);
-                    text = "";
-                    run.setText(text, 0);
-                    changes++;
+                    moveIntoTag(pending, run, text, text.length());
                     continue;
                 }
             }
             if (mayContainUnfinishedTag(text)) {
-                runToExtend = run;
+                pending = new PendingTag(run, text);
             }
         }
+        if (pending != null) {
+            pending.write();
+        }
+    }
+
+    /**
+     * @return remaining text of the run
+     */
+    private String moveIntoTag(PendingTag pending, XWPFRun run, String text, int length) {
+        pending.append(text, length);
+        String rest = text.substring(length);
+        run.setText(rest, 0);
+        changes++;
+        return rest;
     }
 
     private boolean mayContainUnfinishedTag(String text) {
@@ -139,12 +150,47 @@ public class DocxDefragmenter {
         }
     }
 
-    private boolean cannotBeExtendedToValidTag(String partWithPendingTag, String nextPart, int endPos) {
-        if (partWithPendingTag.length() - partWithPendingTag.lastIndexOf(START) > MAX_TAG_LENGTH
-                || partWithPendingTag.charAt(partWithPendingTag.length() - 1) == START && nextPart.charAt(0) != MARKER) {
-            return true;
+    /**
+     * Run with an unfinished tag and the text collected for it so far.
+     */
+    private static final class PendingTag {
+
+        private final XWPFRun run;
+
+        private final StringBuilder text;
+
+        private final int originalLength;
+
+        private int lastStartPos;
+
+        PendingTag(XWPFRun run, String text) {
+            this.run = run;
+            this.text = new StringBuilder(text);
+            originalLength = text.length();
+            lastStartPos = text.lastIndexOf(START);
+        }
+
+        boolean cannotBeExtendedBy(String nextPart, int endPos) {
+            if (text.length() - lastStartPos > MAX_TAG_LENGTH
+                    || lastStartPos == text.length() - 1 && nextPart.charAt(0) != MARKER) {
+                return true;
+            }
+            int startPos = nextPart.indexOf(START);
+            return startPos > -1 && startPos < endPos;
+        }
+
+        void append(String part, int length) {
+            int startPos = part.lastIndexOf(START, length - 1);
+            if (startPos > -1) {
+                lastStartPos = text.length() + startPos;
+            }
+            text.append(part, 0, length);
+        }
+
+        void write() {
+            if (text.length() > originalLength) {
+                run.setText(text.toString(), 0);
+            }
         }
-        int startPos = nextPart.indexOf(START);
-        return startPos > -1 && startPos < endPos;
     }
-}
\ No newline at end of file
+}
@@ -6,13 +6,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Supplier;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 
 /**
@@ -67,7 +66,23 @@ public class MediaProvider
     return result;
   }
 
-  void writeRefsTo(OutputStream out) throws IOException
+  /**
+   * Copies the relations of a document, adding the references to the images.
+   *
+   * @param relations original relations part
+   * @param out where to write the extended relations
+   * @throws IOException in case of streaming problems
+   */
+  void addRefsTo(InputStream relations, OutputStream out) throws IOException
+  {
+    Charset encoding = StandardCharsets.UTF_8;
+    String content = new String(relations.readAllBytes(), encoding);
+    out.write(content.substring(0, content.indexOf("</Relationships>")).getBytes(encoding));
+    writeRefsTo(out);
+    out.write("</Relationships>".getBytes(encoding));
+  }
+
+  private void writeRefsTo(OutputStream out) throws IOException
   {
     for ( Entry<String, String> ref : allRefs.entrySet() )
     {
@@ -77,14 +92,14 @@ public class MediaProvider
     }
   }
 
-  void writeContentsTo(ZipOutputStream out) throws IOException
+  void writeContentsTo(RawZipWriter out) throws IOException
   {
     for ( Entry<String, Supplier<InputStream>> file : contents.entrySet() )
     {
-      out.putNextEntry(new ZipEntry("word/media/" + file.getKey()));
-      try (InputStream mediaRes = file.getValue().get())
+      try (InputStream mediaRes = file.getValue().get();
+        OutputStream entry = out.open("word/media/" + file.getKey()))
       {
-        mediaRes.transferTo(out);
+        mediaRes.transferTo(entry);
       }
     }
   }
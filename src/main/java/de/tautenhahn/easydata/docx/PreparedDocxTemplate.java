@@ -0,0 +1,123 @@
+package de.tautenhahn.easydata.docx;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipException;
+
+import de.tautenhahn.easydata.AccessibleData;
+import de.tautenhahn.easydata.CompiledTemplate;
+
+
+/**
+ * DOCX template which has been read once and can be expanded with different data as often as needed. Use this
+ * class instead of {@link DocxAdapter} if many documents are created from the same template: the text content is
+ * compiled once and all other entries are kept in memory as compressed in the template, so creating a document
+ * writes the expanded text content and copies the kept entries. Instances may be used by several threads at once,
+ * provided each thread uses its own {@link MediaProvider}.
+ *
+ * @author TT
+ */
+public final class PreparedDocxTemplate {
+
+    private final List<Part> entries;
+
+    private final CompiledTemplate document;
+
+    private PreparedDocxTemplate(List<Part> entries, CompiledTemplate document) {
+        this.entries = entries;
+        this.document = document;
+    }
+
+    /**
+     * Reads a DOCX template completely.
+     *
+     * @param source contains the template, is closed
+     * @return new instance which does not depend on the stream anymore
+     * @throws IOException in case of streaming problems or if the template has no text content
+     */
+    public static PreparedDocxTemplate prepare(InputStream source) throws IOException {
+        List<Part> entries = new ArrayList<>();
+        CompiledTemplate document = null;
+        try (RawZipReader ins = new RawZipReader(source, DocxAdapter.LIMIT)) {
+            while (ins.next() != null) {
+                Part part = new Part(ins.openRaw().readAllBytes(), ins.completed());
+                if (DocxAdapter.SPECIAL_ENTRY_NAME.equals(part.entry().name())) {
+                    document = compile(part);
+                }
+                entries.add(part);
+            }
+        }
+        if (document == null) {
+            throw new ZipException("missing entry " + DocxAdapter.SPECIAL_ENTRY_NAME);
+        }
+        return new PreparedDocxTemplate(entries, document);
+    }
+
+    private static CompiledTemplate compile(Part part) throws IOException {
+        try (InputStream content = part.open();
+             InputStream safe = new DocxAdapter.SafeInputStream(content);
+             Reader reader = new InputStreamReader(safe, StandardCharsets.UTF_8)) {
+            return CompiledTemplate.compile(reader, '(', '@', ')');
+        }
+    }
+
+    /**
+     * Creates a document expanding the special tags of the template.
+     *
+     * @param data        data to fill into the template
+     * @param destination to write the result into, is closed
+     * @throws IOException in case of streaming problems
+     */
+    public void render(AccessibleData data, OutputStream destination) throws IOException {
+        render(data, null, destination);
+    }
+
+    /**
+     * Creates a document expanding the special tags of the template and embedding additional images.
+     *
+     * @param data        data to fill into the template
+     * @param media       provides additional images to embed into the DOCX, may be null
+     * @param destination to write the result into, is closed
+     * @throws IOException in case of streaming problems
+     */
+    public void render(AccessibleData data, MediaProvider media, OutputStream destination) throws IOException {
+        AccessibleData sanitized = new DocxAdapter.SanitizingData(data);
+        try (RawZipWriter out = new RawZipWriter(destination)) {
+            for (Part part : entries) {
+                String name = part.entry().name();
+                if (DocxAdapter.SPECIAL_ENTRY_NAME.equals(name)) {
+                    try (OutputStream target = out.open(name)) {
+                        document.render(sanitized, target);
+                    }
+                } else if (media != null && DocxAdapter.RELATIONS_ENTRY_NAME.equals(name)) {
+                    try (InputStream relations = part.open();
+                         OutputStream target = out.open(name)) {
+                        media.addRefsTo(relations, target);
+                    }
+                } else {
+                    out.write(part.entry(), part.data());
+                }
+            }
+            if (media != null) {
+                media.writeContentsTo(out);
+            }
+        }
+    }
+
+    /**
+     * Entry of the template with its content as stored.
+     */
+    private record Part(byte[] data, RawZipEntry entry) {
+
+        InputStream open() throws ZipException {
+            return entry.open(new ByteArrayInputStream(data));
+        }
+    }
+}
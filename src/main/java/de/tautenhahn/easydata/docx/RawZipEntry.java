@@ -0,0 +1,59 @@
+package de.tautenhahn.easydata.docx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+
+/**
+ * Local header of an entry of a ZIP file. The content is read separately as stored in the file, usually deflated,
+ * so it can be written into another ZIP file without inflating and deflating it again.
+ *
+ * @param name           path within the ZIP file
+ * @param flags          general purpose flags
+ * @param method         compression method
+ * @param dosTime        modification date and time in MS-DOS format
+ * @param crc            CRC-32 of the uncompressed content, 0 if given by a data descriptor not read yet
+ * @param compressedSize size of the content as stored, 0 if given by a data descriptor not read yet
+ * @param size           size of the uncompressed content, 0 if given by a data descriptor not read yet
+ * @param extra          extra field of the local header
+ * @author TT
+ */
+record RawZipEntry(String name, int flags, int method, long dosTime, long crc, long compressedSize, long size,
+                   byte[] extra) {
+
+    /**
+     * @return true if CRC and sizes follow the content instead of being in the local header
+     */
+    boolean hasDescriptor() {
+        return (flags & RawZipReader.DESCRIPTOR_FLAG) != 0;
+    }
+
+    /**
+     * Returns the uncompressed content.
+     *
+     * @param raw content of this entry as stored
+     * @return new stream which closes the given one
+     * @throws ZipException if the compression method is not supported
+     */
+    InputStream open(InputStream raw) throws ZipException {
+        if (method == ZipEntry.STORED) {
+            return raw;
+        }
+        if (method != ZipEntry.DEFLATED) {
+            throw new ZipException("unsupported compression method " + method + " of " + name);
+        }
+        Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(raw, inflater) {
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inflater.end();
+            }
+        };
+    }
+}
@@ -0,0 +1,301 @@
+package de.tautenhahn.easydata.docx;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+
+/**
+ * Reads the entries of a ZIP file from a stream without inflating their content. As with {@link
+ * java.util.zip.ZipInputStream}, the local headers are read and the central directory is ignored. The content of
+ * the current entry is streamed as stored, so no entry is held in memory. Sizes and CRC of entries followed by a
+ * data descriptor are taken from that descriptor after the content has been read. To find the end of such an
+ * entry, its content is inflated while being read, but the inflated bytes are dropped. ZIP64 entries are not
+ * supported.
+ *
+ * @author TT
+ */
+final class RawZipReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+
+    private static final int CENTRAL_HEADER = 0x02014b50;
+
+    private static final int END_HEADER = 0x06054b50;
+
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final long ZIP64_MARKER = 0xFFFFFFFFL;
+
+    /**
+     * General purpose flag announcing a data descriptor after the content.
+     */
+    static final int DESCRIPTOR_FLAG = 8;
+
+    private final PushbackInputStream in;
+
+    private final long limit;
+
+    private final byte[] inflated = new byte[BUFFER_SIZE];
+
+    private RawZipEntry entry;
+
+    private InputStream content;
+
+    private boolean contentRead;
+
+    /**
+     * Creates instance.
+     *
+     * @param in    ZIP content, closed when this reader is closed
+     * @param limit maximum size of any entry, compressed or not, to avoid ZIP bombs
+     */
+    RawZipReader(InputStream in, long limit) {
+        this.in = new PushbackInputStream(in, BUFFER_SIZE);
+        this.limit = limit;
+    }
+
+    /**
+     * Reads the local header of the next entry, skipping the content of the current entry if it has not been read.
+     *
+     * @return null if there are no more entries
+     * @throws IOException in case of streaming problems or invalid ZIP content
+     */
+    RawZipEntry next() throws IOException {
+        skipContent();
+        entry = null;
+        content = null;
+        byte[] signature = in.readNBytes(Integer.BYTES);
+        if (signature.length == 0) {
+            return null;
+        }
+        if (signature.length < Integer.BYTES) {
+            throw new EOFException("unexpected end of ZIP file");
+        }
+        ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN).put(signature);
+        int type = header.getInt(0);
+        if (type == CENTRAL_HEADER || type == END_HEADER) {
+            return null;
+        }
+        if (type != LOCAL_HEADER) {
+            throw new ZipException("invalid local header");
+        }
+        header.put(readBytes(LOCAL_HEADER_SIZE - Integer.BYTES));
+        int flags = Short.toUnsignedInt(header.getShort(6));
+        int method = Short.toUnsignedInt(header.getShort(8));
+        String name = new String(readBytes(Short.toUnsignedInt(header.getShort(26))), StandardCharsets.UTF_8);
+        byte[] extra = readBytes(Short.toUnsignedInt(header.getShort(28)));
+        long dosTime = Integer.toUnsignedLong(header.getInt(10));
+        if ((flags & DESCRIPTOR_FLAG) == 0) {
+            entry = new RawZipEntry(name, flags, method, dosTime, Integer.toUnsignedLong(header.getInt(14)),
+                                    checkSize(Integer.toUnsignedLong(header.getInt(18)), name),
+                                    checkSize(Integer.toUnsignedLong(header.getInt(22)), name), extra);
+            content = new StoredContent(entry.compressedSize());
+        } else if (method == ZipEntry.DEFLATED) {
+            entry = new RawZipEntry(name, flags, method, dosTime, 0, 0, 0, extra);
+            content = new DeflatedContent();
+        } else {
+            throw new ZipException("only deflated entries can have a data descriptor: " + name);
+        }
+        contentRead = false;
+        return entry;
+    }
+
+    /**
+     * @return local header of the current entry, null before the first or after the last entry
+     */
+    RawZipEntry current() {
+        return entry;
+    }
+
+    /**
+     * Returns the content of the current entry as stored. It can be read only once.
+     *
+     * @return stream which does not close this reader
+     */
+    InputStream openRaw() {
+        if (entry == null || contentRead) {
+            throw new IllegalStateException("no unread entry");
+        }
+        contentRead = true;
+        return content;
+    }
+
+    /**
+     * Returns the uncompressed content of the current entry. It can be read only once.
+     *
+     * @return stream which does not close this reader
+     * @throws ZipException if the compression method is not supported
+     */
+    InputStream open() throws ZipException {
+        return entry.open(openRaw());
+    }
+
+    /**
+     * Returns the current entry with the values of its data descriptor, if any. Content not read yet is skipped.
+     *
+     * @return entry with CRC and sizes
+     * @throws IOException in case of streaming problems or invalid ZIP content
+     */
+    RawZipEntry completed() throws IOException {
+        skipContent();
+        return entry;
+    }
+
+    /**
+     * Readers of the content may stop before its end, for instance at the end of the deflated data.
+     */
+    private void skipContent() throws IOException {
+        if (content != null) {
+            content.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private long checkSize(long size, String name) throws ZipException {
+        if (size == ZIP64_MARKER) {
+            throw new ZipException("ZIP64 entries are not supported: " + name);
+        }
+        if (size > limit) {
+            throw new ZipException("entry too large: " + name);
+        }
+        return size;
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        byte[] result = in.readNBytes(length);
+        if (result.length < length) {
+            throw new EOFException("unexpected end of ZIP file");
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Content of known size.
+     */
+    private final class StoredContent extends InputStream {
+
+        private long remaining;
+
+        StoredContent(long size) {
+            super();
+            remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : Byte.toUnsignedInt(single[0]);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int result = in.read(b, off, (int) Math.min(len, remaining));
+            if (result == -1) {
+                throw new EOFException("unexpected end of ZIP entry " + entry.name());
+            }
+            remaining -= result;
+            return result;
+        }
+    }
+
+    /**
+     * Deflated content followed by a data descriptor. Bytes read beyond the end of the deflated data are pushed
+     * back, then the descriptor is read.
+     */
+    private final class DeflatedContent extends InputStream {
+
+        private final Inflater inflater = new Inflater(true);
+
+        private long compressedSize;
+
+        private long size;
+
+        private boolean finished;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : Byte.toUnsignedInt(single[0]);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            int read = in.read(b, off, Math.min(len, BUFFER_SIZE));
+            if (read == -1) {
+                throw new EOFException("unexpected end of ZIP entry " + entry.name());
+            }
+            int used = inflate(b, off, read);
+            compressedSize += used;
+            if (inflater.finished()) {
+                in.unread(b, off + used, read - used);
+                finish();
+            }
+            return used;
+        }
+
+        /**
+         * @return number of bytes belonging to the deflated data
+         */
+        private int inflate(byte[] b, int off, int len) throws IOException {
+            inflater.setInput(b, off, len);
+            try {
+                while (!inflater.finished() && !inflater.needsInput()) {
+                    size += inflater.inflate(inflated);
+                    if (size > limit || inflater.needsDictionary()) {
+                        throw new ZipException("invalid or too large content of " + entry.name());
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException("invalid content of " + entry.name() + ": " + e.getMessage()); // NOPMD message kept
+            }
+            return len - inflater.getRemaining();
+        }
+
+        private void finish() throws IOException {
+            finished = true;
+            inflater.end();
+            ByteBuffer descriptor = ByteBuffer.wrap(readBytes(12)).order(ByteOrder.LITTLE_ENDIAN);
+            if (descriptor.getInt(0) == DATA_DESCRIPTOR) {
+                in.unread(descriptor.array(), 4, 8);
+                descriptor = ByteBuffer.wrap(readBytes(12)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            String name = entry.name();
+            if (Integer.toUnsignedLong(descriptor.getInt(4)) != compressedSize || compressedSize > limit) {
+                throw new ZipException("invalid data descriptor of " + name);
+            }
+            entry = new RawZipEntry(name, entry.flags(), entry.method(), entry.dosTime(),
+                                    Integer.toUnsignedLong(descriptor.getInt(0)), compressedSize,
+                                    checkSize(Integer.toUnsignedLong(descriptor.getInt(8)), name), entry.extra());
+        }
+
+        @Override
+        public void close() {
+            // the reader is closed separately
+        }
+    }
+}
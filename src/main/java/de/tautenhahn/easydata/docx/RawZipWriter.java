@@ -0,0 +1,270 @@
+package de.tautenhahn.easydata.docx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+
+/**
+ * Writes a ZIP file to a stream. Entries read by {@link RawZipReader} are copied with their compressed content and
+ * CRC, streaming that content from the reader. New entries are deflated while written. ZIP64 is not supported.
+ *
+ * @author TT
+ */
+final class RawZipWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+
+    private static final int CENTRAL_HEADER = 0x02014b50;
+
+    private static final int END_HEADER = 0x06054b50;
+
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+
+    private static final int UTF8_FLAG = 0x800;
+
+    private static final long MAX_VALUE = 0xFFFFFFFFL;
+
+    private final OutputStream out;
+
+    private final List<Written> written = new ArrayList<>();
+
+    private final Set<String> names = new HashSet<>();
+
+    private long offset;
+
+    private boolean closed;
+
+    /**
+     * Creates instance.
+     *
+     * @param destination receives the ZIP content, closed when this writer is closed
+     */
+    RawZipWriter(OutputStream destination) {
+        out = new OutputStream() {
+
+            @Override
+            public void write(int b) throws IOException {
+                destination.write(b);
+                offset++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                destination.write(b, off, len);
+                offset += len;
+            }
+
+            @Override
+            public void close() throws IOException {
+                destination.close();
+            }
+        };
+    }
+
+    /**
+     * Copies the current entry of a reader as it is stored, streaming its content.
+     *
+     * @param source positioned at an entry whose content has not been read
+     * @throws IOException in case of streaming problems or duplicate names
+     */
+    void copy(RawZipReader source) throws IOException {
+        RawZipEntry entry = source.current();
+        checkName(entry.name());
+        long start = offset;
+        writeLocalHeader(new Written(entry, start), entry.extra());
+        source.openRaw().transferTo(out);
+        RawZipEntry completed = source.completed();
+        if (completed.hasDescriptor()) {
+            writeDescriptor(completed.crc(), completed.compressedSize(), completed.size());
+        }
+        written.add(new Written(completed, start));
+    }
+
+    /**
+     * Writes an entry with content held in memory.
+     *
+     * @param entry complete entry as returned by {@link RawZipReader#completed()}
+     * @param data  content as stored
+     * @throws IOException in case of streaming problems or duplicate names
+     */
+    void write(RawZipEntry entry, byte[] data) throws IOException {
+        Written result = new Written(entry.name(), entry.flags() & ~RawZipReader.DESCRIPTOR_FLAG, entry.method(),
+                                     entry.dosTime(), entry.crc(), data.length, entry.size(), offset);
+        add(result);
+        writeLocalHeader(result, entry.extra());
+        out.write(data);
+    }
+
+    /**
+     * Starts a new entry which is deflated while written. The entry is complete when the returned stream is
+     * closed, no other entry may be written before that.
+     *
+     * @param name path within the ZIP file
+     * @return stream to write the uncompressed content into
+     * @throws IOException in case of streaming problems or duplicate names
+     */
+    OutputStream open(String name) throws IOException {
+        Written header = new Written(name, UTF8_FLAG | RawZipReader.DESCRIPTOR_FLAG, ZipEntry.DEFLATED,
+                                     dosTime(LocalDateTime.now()), 0, 0, 0, offset);
+        checkName(name);
+        writeLocalHeader(header, new byte[0]);
+        return new EntryStream(out, header);
+    }
+
+    private void add(Written entry) throws IOException {
+        checkName(entry.name());
+        written.add(entry);
+    }
+
+    private void checkName(String name) throws ZipException {
+        if (!names.add(name)) {
+            throw new ZipException("duplicate entry: " + name);
+        }
+    }
+
+    private void writeDescriptor(long crc, long compressedSize, long size) throws IOException {
+        ByteBuffer descriptor = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        descriptor.putInt(DATA_DESCRIPTOR).putInt((int) crc).putInt((int) compressedSize).putInt((int) size);
+        out.write(descriptor.array());
+    }
+
+    private void writeLocalHeader(Written entry, byte[] extra) throws IOException {
+        byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOCAL_HEADER).putShort(entry.version()).putShort((short) entry.flags())
+              .putShort((short) entry.method()).putInt((int) entry.dosTime()).putInt((int) entry.crc())
+              .putInt((int) entry.compressedSize()).putInt((int) entry.size()).putShort((short) name.length)
+              .putShort((short) extra.length);
+        out.write(header.array());
+        out.write(name);
+        out.write(extra);
+    }
+
+    /**
+     * Writes the central directory and closes the destination.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (out) {
+            if (written.size() > Short.toUnsignedInt((short) -1) || offset > MAX_VALUE) {
+                throw new ZipException("too many or too large entries, ZIP64 is not supported");
+            }
+            long start = offset;
+            for (Written entry : written) {
+                writeCentralHeader(entry);
+            }
+            ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+            end.putInt(END_HEADER).putInt(0).putShort((short) written.size()).putShort((short) written.size())
+               .putInt((int) (offset - start)).putInt((int) start).putShort((short) 0);
+            out.write(end.array());
+        }
+    }
+
+    private void writeCentralHeader(Written entry) throws IOException {
+        byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(46).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(CENTRAL_HEADER).putShort(entry.version()).putShort(entry.version())
+              .putShort((short) entry.flags()).putShort((short) entry.method()).putInt((int) entry.dosTime())
+              .putInt((int) entry.crc()).putInt((int) entry.compressedSize()).putInt((int) entry.size())
+              .putShort((short) name.length).putInt(0).putInt(0).putInt(0).putInt((int) entry.offset());
+        out.write(header.array());
+        out.write(name);
+    }
+
+    /**
+     * @return date and time in MS-DOS format, which has a resolution of two seconds
+     */
+    private static long dosTime(LocalDateTime time) {
+        return (long) (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+               | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    /**
+     * Values of an entry needed for the central directory.
+     */
+    private record Written(String name, int flags, int method, long dosTime, long crc, long compressedSize,
+                           long size, long offset) {
+
+        Written(RawZipEntry entry, long offset) {
+            this(entry.name(), entry.flags(), entry.method(), entry.dosTime(), entry.crc(), entry.compressedSize(),
+                 entry.size(), offset);
+        }
+
+        short version() {
+            return (short) (method == ZipEntry.DEFLATED ? 20 : 10);
+        }
+    }
+
+    /**
+     * Deflates the content of a new entry and completes the entry when closed.
+     */
+    private final class EntryStream extends DeflaterOutputStream {
+
+        private final Written header;
+
+        private final CRC32 crc = new CRC32();
+
+        private long size;
+
+        private boolean finished;
+
+        EntryStream(OutputStream target, Written header) {
+            super(target, new Deflater(Deflater.DEFAULT_COMPRESSION, true), BUFFER_SIZE);
+            this.header = header;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            crc.update(b, off, len);
+            size += len;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            try {
+                finish();
+            } finally {
+                def.end();
+            }
+            long compressedSize = offset - header.offset() - 30 - header.name().getBytes(StandardCharsets.UTF_8).length;
+            if (size > MAX_VALUE || compressedSize > MAX_VALUE) {
+                throw new ZipException("entry too large, ZIP64 is not supported: " + header.name());
+            }
+            writeDescriptor(crc.getValue(), compressedSize, size);
+            written.add(new Written(header.name(), header.flags(), header.method(), header.dosTime(),
+                                    crc.getValue(), compressedSize, size, header.offset()));
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package de.tautenhahn.easydata.docx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import de.tautenhahn.easydata.Utf8Writer;
+
+
+/**
+ * Does the same as {@link DocxDefragmenter} while streaming the document instead of loading it completely. The
+ * text content, headers and footers are read and written event by event, holding only the events of the current
+ * paragraph in memory. All other entries of the DOCX are copied as they are. <br>
+ * Text is moved between the text nodes of a paragraph instead of between its runs, which is sufficient to have
+ * each special tag within one text node. Nested paragraphs, for instance in text boxes, end a pending tag.
+ *
+ * @author TT
+ */
+public class StreamingDocxDefragmenter {
+
+    private static final String WORD_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final QName PARAGRAPH = new QName(WORD_NS, "p");
+
+    private static final QName TEXT = new QName(WORD_NS, "t");
+
+    private static final Pattern REORGANIZED_PARTS = Pattern.compile("word/(document|header\\d*|footer\\d*)\\.xml");
+
+    private static final int MAX_TAG_LENGTH = 300;
+
+    private static final char START = '(';
+
+    private static final char MARKER = '@';
+
+    private static final char END = ')';
+
+    private static final XMLInputFactory INPUT = XMLInputFactory.newFactory();
+
+    private static final XMLOutputFactory OUTPUT = XMLOutputFactory.newFactory();
+
+    private static final XMLEventFactory EVENTS = XMLEventFactory.newFactory();
+
+    static {
+        INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        INPUT.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    int changes;
+
+    /**
+     * Collects each special tag into a single text node. Any content which does not conform to the convention
+     * "opening character, marker character, stuff not containing opening or closing character, closing character"
+     * is not changed here.
+     *
+     * @param ins DOCX to reorganize
+     * @param out to write the changed DOCX into, is closed
+     * @throws IOException in case of streaming problems or invalid XML content
+     */
+    public void reorganize(InputStream ins, OutputStream out) throws IOException {
+        try (RawZipReader source = new RawZipReader(ins, DocxAdapter.LIMIT);
+             RawZipWriter target = new RawZipWriter(out)) {
+            for (RawZipEntry entry = source.next(); entry != null; entry = source.next()) {
+                if (REORGANIZED_PARTS.matcher(entry.name()).matches()) {
+                    try (InputStream content = source.open();
+                         Reader reader = reorganizePart(new DocxAdapter.SafeInputStream(content));
+                         Writer writer = new Utf8Writer(target.open(entry.name()))) {
+                        reader.transferTo(writer);
+                    }
+                } else {
+                    target.copy(source);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the reorganized XML of a DOCX part. The content is read while the result is read.
+     *
+     * @param xml part like word/document.xml, closed when the result is closed
+     * @return XML to be written UTF-8 encoded
+     * @throws IOException if the XML cannot be read
+     */
+    Reader reorganizePart(InputStream xml) throws IOException {
+        try {
+            return new PartReader(xml);
+        } catch (XMLStreamException e) {
+            throw new IOException("cannot read XML", e);
+        }
+    }
+
+    /**
+     * Moves text between the text nodes of one paragraph.
+     */
+    private void reorganizeParagraph(List<TextNode> nodes) {
+        TextNode pending = null;
+        for (TextNode node : nodes) {
+            String text = node.text.toString();
+            if (text.isEmpty()) {
+                continue;
+            }
+            if (pending != null && pending.segment == node.segment
+                && !cannotBeExtendedToValidTag(pending.text, text)) {
+                int endPos = text.indexOf(END);
+                if (endPos == -1) {
+                    move(pending, node, text.length());
+                    continue;
+                }
+                move(pending, node, endPos + 1);
+                text = text.substring(endPos + 1);
+            }
+            pending = mayContainUnfinishedTag(text) ? node : null;
+        }
+    }
+
+    private void move(TextNode pending, TextNode node, int length) {
+        pending.append(node.text.substring(0, length));
+        node.remove(length);
+        changes++;
+    }
+
+    private static boolean mayContainUnfinishedTag(String text) {
+        int lastStartPos = text.lastIndexOf(START);
+        int lastEndPos = text.lastIndexOf(END);
+        return lastStartPos > -1
+               && (lastStartPos == text.length() - 1 || text.charAt(lastStartPos + 1) == MARKER)
+               && lastEndPos < lastStartPos;
+    }
+
+    private static boolean cannotBeExtendedToValidTag(StringBuilder partWithPendingTag, String nextPart) {
+        int lastStartPos = partWithPendingTag.lastIndexOf(String.valueOf(START));
+        if (partWithPendingTag.length() - lastStartPos > MAX_TAG_LENGTH
+            || lastStartPos == partWithPendingTag.length() - 1 && nextPart.charAt(0) != MARKER) {
+            return true;
+        }
+        int startPos = nextPart.indexOf(START);
+        return startPos > -1 && startPos < nextPart.indexOf(END);
+    }
+
+    private static boolean isStart(XMLEvent event, QName name) {
+        return event.isStartElement() && name.equals(event.asStartElement().getName());
+    }
+
+    private static boolean isEnd(XMLEvent event, QName name) {
+        return event.isEndElement() && name.equals(event.asEndElement().getName());
+    }
+
+    /**
+     * Text node of a paragraph, given by the indexes of its start and end element within the events of the
+     * paragraph.
+     */
+    private static final class TextNode {
+
+        final int start;
+
+        final int segment;
+
+        final StringBuilder text = new StringBuilder();
+
+        int end;
+
+        boolean changed;
+
+        TextNode(int start, int segment) {
+            this.start = start;
+            this.segment = segment;
+        }
+
+        void append(String value) {
+            text.append(value);
+            changed = true;
+        }
+
+        void remove(int length) {
+            text.delete(0, length);
+            changed = true;
+        }
+    }
+
+    /**
+     * Writes the XML of a part while it is read, one paragraph or other event at a time.
+     */
+    private final class PartReader extends Reader {
+
+        private final InputStream xml;
+
+        private final XMLEventReader events;
+
+        private final StringWriter written = new StringWriter();
+
+        private final XMLEventWriter writer;
+
+        private int pos;
+
+        PartReader(InputStream xml) throws XMLStreamException {
+            super();
+            this.xml = xml;
+            events = INPUT.createXMLEventReader(xml);
+            writer = OUTPUT.createXMLEventWriter(written);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            StringBuffer buffer = written.getBuffer();
+            while (pos == buffer.length()) {
+                if (!events.hasNext()) {
+                    return -1;
+                }
+                buffer.setLength(0);
+                pos = 0;
+                try {
+                    step();
+                } catch (XMLStreamException e) {
+                    throw new IOException("cannot read XML", e);
+                }
+            }
+            int result = Math.min(len, buffer.length() - pos);
+            buffer.getChars(pos, pos + result, cbuf, off);
+            pos += result;
+            return result;
+        }
+
+        private void step() throws XMLStreamException {
+            XMLEvent event = events.nextEvent();
+            if (event.isStartDocument()) {
+                writeDeclaration((StartDocument) event);
+            } else if (isStart(event, PARAGRAPH)) {
+                writeParagraph(event);
+            } else {
+                writer.add(event);
+            }
+            writer.flush();
+        }
+
+        /**
+         * Written directly because the event writer would drop the standalone declaration.
+         */
+        private void writeDeclaration(StartDocument event) {
+            written.write("<?xml version=\"1.0\" encoding=\"UTF-8\"");
+            if (event.standaloneSet()) {
+                written.write(event.isStandalone() ? " standalone=\"yes\"" : " standalone=\"no\"");
+            }
+            written.write("?>\n");
+        }
+
+        private void writeParagraph(XMLEvent first) throws XMLStreamException {
+            List<XMLEvent> buffered = new ArrayList<>();
+            List<TextNode> nodes = new ArrayList<>();
+            buffered.add(first);
+            TextNode current = null;
+            int segment = 0;
+            int depth = 1;
+            while (depth > 0) {
+                XMLEvent event = events.nextEvent();
+                buffered.add(event);
+                if (isStart(event, PARAGRAPH) || isEnd(event, PARAGRAPH)) {
+                    depth += event.isStartElement() ? 1 : -1;
+                    segment++;
+                } else if (isStart(event, TEXT)) {
+                    current = new TextNode(buffered.size() - 1, segment);
+                } else if (current != null && event.isCharacters()) {
+                    current.text.append(event.asCharacters().getData());
+                } else if (current != null && isEnd(event, TEXT)) {
+                    current.end = buffered.size() - 1;
+                    nodes.add(current);
+                    current = null;
+                }
+            }
+            reorganizeParagraph(nodes);
+            writeEvents(buffered, nodes);
+        }
+
+        private void writeEvents(List<XMLEvent> buffered, List<TextNode> nodes) throws XMLStreamException {
+            int index = 0;
+            for (TextNode node : nodes) {
+                if (node.changed) {
+                    write(buffered, index, node.start);
+                    writer.add(preservingSpace(buffered.get(node.start).asStartElement()));
+                    if (node.text.length() > 0) {
+                        writer.add(EVENTS.createCharacters(node.text.toString()));
+                    }
+                    index = node.end;
+                }
+            }
+            write(buffered, index, buffered.size());
+        }
+
+        private void write(List<XMLEvent> buffered, int from, int to) throws XMLStreamException {
+            for (XMLEvent event : buffered.subList(from, to)) {
+                writer.add(event);
+            }
+        }
+
+        /**
+         * Moved text may start or end with blanks which must not be dropped.
+         */
+        private StartElement preservingSpace(StartElement original) {
+            QName space = new QName(XMLConstants.XML_NS_URI, "space", XMLConstants.XML_NS_PREFIX);
+            List<Attribute> attributes = new ArrayList<>();
+            original.getAttributes().forEachRemaining(attribute -> {
+                if (!space.equals(attribute.getName())) {
+                    attributes.add(attribute);
+                }
+            });
+            attributes.add(EVENTS.createAttribute(space, "preserve"));
+            QName name = original.getName();
+            return EVENTS.createStartElement(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(),
+                                             attributes.iterator(), original.getNamespaces());
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (xml) {
+                events.close();
+                writer.close();
+            } catch (XMLStreamException e) {
+                throw new IOException("cannot close XML", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package de.tautenhahn.easydata.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+
+/**
+ * Reads JSON data into compact immutable maps. Objects having the same member names in the same order share one
+ * shape holding these names and a hash table to find them, so each object needs only an array of its values. Many
+ * records with the same fields take much less heap than with Gson's tree maps and member lookup is a hash probe
+ * instead of a tree search. Objects with many members or too many different name orders are read into plain maps
+ * instead, see {@link Shape}. Arrays of at least two objects sharing one shape are stored by columns, see
+ * {@link RecordTable}. Other arrays, strings, numbers and booleans are represented as by Gson. Use
+ * <code>AccessibleData.byBean(CompactJson.load(reader))</code>.
+ *
+ * @author TT
+ */
+public final class CompactJson {
+
+    /**
+     * Shape of the empty object, all other shapes are reached from it by adding names.
+     */
+    private final Shape root = new Shape();
+
+    /**
+     * Values of the objects currently read, nested objects above those of their parents.
+     */
+    private final List<Object> pending = new ArrayList<>();
+
+    private final JsonReader reader;
+
+    private CompactJson(Reader json) {
+        reader = new JsonReader(json);
+        reader.setStrictness(Strictness.LENIENT);
+    }
+
+    /**
+     * Reads a JSON object.
+     *
+     * @param json contains a JSON object
+     * @return immutable map representing that object
+     * @throws IOException in case of streaming problems or invalid JSON
+     */
+    public static Map<String, Object> load(Reader json) throws IOException {
+        CompactJson loader = new CompactJson(json);
+        JsonToken first = loader.reader.peek();
+        if (first != JsonToken.BEGIN_OBJECT) {
+            throw new JsonSyntaxException("expected JSON object but was " + first);
+        }
+        return loader.readObject();
+    }
+
+    private Object readValue() throws IOException {
+        return switch (reader.peek()) {
+            case BEGIN_OBJECT -> readObject();
+            case BEGIN_ARRAY -> readArray();
+            case STRING -> reader.nextString();
+            case NUMBER -> reader.nextDouble();
+            case BOOLEAN -> reader.nextBoolean();
+            case NULL -> {
+                reader.nextNull();
+                yield null;
+            }
+            default -> throw new JsonSyntaxException("unexpected " + reader.peek() + " at " + reader.getPath());
+        };
+    }
+
+    private Map<String, Object> readObject() throws IOException {
+        reader.beginObject();
+        Shape shape = root;
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (shape.indexOf(name) >= 0) {
+                throw new JsonSyntaxException("duplicate key: " + name);
+            }
+            Shape extended = shape.with(name);
+            if (extended == null) {
+                return readRemainingMembers(shape, name);
+            }
+            shape = extended;
+            pending.add(readValue());
+        }
+        reader.endObject();
+        List<Object> values = pending.subList(pending.size() - shape.size(), pending.size());
+        CompactMap result = new CompactMap(shape, values.toArray());
+        values.clear();
+        return result;
+    }
+
+    /**
+     * Continues reading an object into a plain map because there is no shape for its names.
+     *
+     * @param shape names read so far, values are pending
+     * @param name  name of the next member, its value is not read yet
+     */
+    private Map<String, Object> readRemainingMembers(Shape shape, String name) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<Object> values = pending.subList(pending.size() - shape.size(), pending.size());
+        for (int i = 0; i < shape.size(); i++) {
+            result.put(shape.key(i), values.get(i));
+        }
+        values.clear();
+        String key = name;
+        while (true) {
+            result.put(key, readValue());
+            if (!reader.hasNext()) {
+                break;
+            }
+            key = reader.nextName();
+            if (result.containsKey(key)) {
+                throw new JsonSyntaxException("duplicate key: " + key);
+            }
+        }
+        reader.endObject();
+        return Collections.unmodifiableMap(result);
+    }
+
+    private List<Object> readArray() throws IOException {
+        List<Object> result = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            result.add(readValue());
+        }
+        reader.endArray();
+        return RecordTable.of(result);
+    }
+
+    /**
+     * Map holding values only, the names are in the shape.
+     */
+    static final class CompactMap extends ShapedMap {
+
+        private final Shape names;
+
+        private final Object[] values;
+
+        CompactMap(Shape names, Object... values) {
+            this.names = names;
+            this.values = values;
+        }
+
+        @Override
+        Shape shape() {
+            return names;
+        }
+
+        @Override
+        Object value(int index) {
+            return values[index];
+        }
+    }
+}
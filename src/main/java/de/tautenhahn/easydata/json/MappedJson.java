@@ -0,0 +1,428 @@
+package de.tautenhahn.easydata.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+
+/**
+ * JSON file which is memory mapped and decoded only where it is accessed. Loading finds the boundaries of all
+ * objects and arrays in one pass, the members of an object or the elements of an array are located when it is
+ * accessed first, values are decoded when they are requested. So a template addressing a few paths of a big
+ * document costs little more than reading the file once. Values are presented as read by Gson, namely objects as
+ * maps, arrays as lists and numbers as Double. The views are immutable and may be used by several threads. Use
+ * <code>AccessibleData.byBean(MappedJson.load(file))</code>. <br>
+ * Files must not exceed 2 GB and must not be changed while the data is used. Besides standard JSON only unquoted
+ * member names are accepted.
+ *
+ * @author TT
+ */
+public final class MappedJson {
+
+    private static final int INITIAL_INDEX_SIZE = 1024;
+
+    private final ByteBuffer content;
+
+    /**
+     * Positions of all opening brackets and braces in document order.
+     */
+    private int[] starts = new int[INITIAL_INDEX_SIZE];
+
+    /**
+     * Positions of the respective closing brackets and braces.
+     */
+    private int[] ends = new int[INITIAL_INDEX_SIZE];
+
+    private int containers;
+
+    /**
+     * Containers not closed yet while building the index.
+     */
+    private int[] open = new int[64];
+
+    private int depth;
+
+    private MappedJson(ByteBuffer content) {
+        this.content = content;
+        buildIndex();
+    }
+
+    /**
+     * Maps the file and indexes its structure.
+     *
+     * @param file contains a JSON object
+     * @return view of that object
+     * @throws IOException              in case of streaming problems
+     * @throws IllegalArgumentException if the file does not contain a syntactically correct JSON object
+     */
+    public static Map<String, Object> load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("file " + file + " too big to be mapped");
+            }
+            MappedJson json = new MappedJson(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            int start = json.skipWhitespace(0);
+            if (start >= json.content.limit() || json.content.get(start) != '{') {
+                throw new IllegalArgumentException("file " + file + " does not contain a JSON object");
+            }
+            return json.new JsonObject(start);
+        }
+    }
+
+    private void buildIndex() {
+        int i = 0;
+        while (i < content.limit()) {
+            byte b = content.get(i);
+            if (b == '"') {
+                i = stringEnd(i);
+            } else if (b == '{' || b == '[') {
+                opened(i);
+            } else if (b == '}' || b == ']') {
+                closed(i, b == '}' ? '{' : '[');
+            }
+            i++;
+        }
+        if (depth > 0) {
+            throw invalid(content.limit());
+        }
+    }
+
+    private void opened(int position) {
+        if (containers == starts.length) {
+            starts = Arrays.copyOf(starts, containers * 2);
+            ends = Arrays.copyOf(ends, containers * 2);
+        }
+        if (depth == open.length) {
+            open = Arrays.copyOf(open, depth * 2);
+        }
+        open[depth++] = containers;
+        starts[containers++] = position;
+    }
+
+    private void closed(int position, char opening) {
+        if (depth == 0 || content.get(starts[open[depth - 1]]) != opening) {
+            throw invalid(position);
+        }
+        ends[open[--depth]] = position;
+    }
+
+    /**
+     * @param start position of a value
+     * @return the decoded value
+     */
+    private Object valueAt(int start) {
+        return switch (content.get(start)) {
+            case '{' -> new JsonObject(start);
+            case '[' -> new JsonArray(start);
+            case '"' -> decodeString(start, stringEnd(start));
+            case 't' -> Boolean.TRUE;
+            case 'f' -> Boolean.FALSE;
+            case 'n' -> null;
+            default -> decodeNumber(start, literalEnd(start));
+        };
+    }
+
+    /**
+     * @param start position of a value
+     * @return position after that value
+     */
+    private int valueEnd(int start) {
+        return switch (content.get(start)) {
+            case '{', '[' -> containerEnd(start) + 1;
+            case '"' -> stringEnd(start) + 1;
+            default -> literalEnd(start);
+        };
+    }
+
+    private int containerEnd(int start) {
+        return ends[Arrays.binarySearch(starts, 0, containers, start)];
+    }
+
+    private int stringEnd(int start) {
+        int i = start + 1;
+        while (i < content.limit()) {
+            byte b = content.get(i);
+            if (b == '"') {
+                return i;
+            }
+            i += b == '\\' ? 2 : 1;
+        }
+        throw invalid(start);
+    }
+
+    private int literalEnd(int start) {
+        int i = start;
+        while (i < content.limit() && !isDelimiter(content.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == ',' || b == ':' || b == '}' || b == ']' || isWhitespace(b);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private int skipWhitespace(int start) {
+        int i = start;
+        while (i < content.limit() && isWhitespace(content.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private int expect(int position, char expected) {
+        int result = skipWhitespace(position);
+        if (result >= content.limit() || content.get(result) != expected) {
+            throw invalid(result);
+        }
+        return result;
+    }
+
+    /**
+     * @param valueEnd position after a value in an object or array
+     * @param end      position of the closing brace or bracket
+     * @return start of the next member or element, end if there is none
+     */
+    private int nextElement(int valueEnd, int end) {
+        int position = skipWhitespace(valueEnd);
+        return position < end ? skipWhitespace(expect(position, ',') + 1) : position;
+    }
+
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        content.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Double decodeNumber(int start, int end) {
+        try {
+            return Double.valueOf(decode(start, end));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(invalid(start).getMessage(), e);
+        }
+    }
+
+    /**
+     * Escape sequences are ASCII, so they can be resolved after decoding the bytes.
+     */
+    private String decodeString(int start, int end) {
+        String raw = decode(start + 1, end);
+        if (raw.indexOf('\\') < 0) {
+            return raw;
+        }
+        StringBuilder result = new StringBuilder(raw.length());
+        int i = 0;
+        while (i < raw.length()) {
+            char c = raw.charAt(i);
+            if (c == '\\') {
+                i = appendEscaped(raw, i + 1, result);
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return position after the escape sequence
+     */
+    private static int appendEscaped(String raw, int position, StringBuilder result) {
+        char c = raw.charAt(position);
+        switch (c) {
+            case 'b' -> result.append('\b');
+            case 'f' -> result.append('\f');
+            case 'n' -> result.append('\n');
+            case 'r' -> result.append('\r');
+            case 't' -> result.append('\t');
+            case 'u' -> {
+                result.append((char) Integer.parseInt(raw.substring(position + 1, position + 5), 16));
+                return position + 5;
+            }
+            default -> result.append(c);
+        }
+        return position + 1;
+    }
+
+    private IllegalArgumentException invalid(int position) {
+        return new IllegalArgumentException("invalid JSON at byte " + position);
+    }
+
+    /**
+     * Returns a value, decoding it only at first request. JSON null is decoded each time, which is cheap.
+     */
+    private Object cachedValue(Object[] cache, int index, int position) {
+        Object result = cache[index];
+        if (result == null) {
+            result = valueAt(position);
+            cache[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Located members of an object.
+     *
+     * @param ordinals  index of each member name
+     * @param positions where the values start
+     * @param values    already decoded values
+     */
+    private record Members(Map<String, Integer> ordinals, int[] positions, Object[] values) {
+        // just data
+    }
+
+    /**
+     * View of a JSON object, members are located when first accessed.
+     */
+    private final class JsonObject extends AbstractMap<String, Object> {
+
+        private final int start;
+
+        private volatile Members located;
+
+        JsonObject(int start) {
+            this.start = start;
+        }
+
+        private Members members() {
+            Members result = located;
+            if (result == null) {
+                Map<String, Integer> ordinals = new LinkedHashMap<>();
+                int[] positions = new int[8];
+                int end = containerEnd(start);
+                int position = skipWhitespace(start + 1);
+                while (position < end) {
+                    boolean quoted = content.get(position) == '"';
+                    int keyEnd = quoted ? stringEnd(position) + 1 : literalEnd(position);
+                    String key = quoted ? decodeString(position, keyEnd - 1) : decode(position, keyEnd);
+                    if (ordinals.size() == positions.length) {
+                        positions = Arrays.copyOf(positions, positions.length * 2);
+                    }
+                    int valueStart = skipWhitespace(expect(keyEnd, ':') + 1);
+                    positions[ordinals.computeIfAbsent(key, k -> ordinals.size())] = valueStart;
+                    position = nextElement(valueEnd(valueStart), end);
+                }
+                result = new Members(ordinals, positions, new Object[ordinals.size()]);
+                located = result;
+            }
+            return result;
+        }
+
+        private Object value(Members located, int ordinal) {
+            return cachedValue(located.values(), ordinal, located.positions()[ordinal]);
+        }
+
+        @Override
+        public Object get(Object key) {
+            Members located = members();
+            Integer ordinal = located.ordinals().get(key);
+            return ordinal == null ? null : value(located, ordinal);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return members().ordinals().containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return members().ordinals().size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Members located = members();
+                    Iterator<Entry<String, Integer>> ordinals = located.ordinals().entrySet().iterator();
+                    return new Iterator<>() {
+
+                        @Override
+                        public boolean hasNext() {
+                            return ordinals.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Entry<String, Integer> entry = ordinals.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), value(located, entry.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return JsonObject.this.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * View of a JSON array, elements are located when first accessed.
+     */
+    private final class JsonArray extends AbstractList<Object> implements RandomAccess {
+
+        private final int start;
+
+        private volatile int[] located;
+
+        private volatile Object[] values;
+
+        JsonArray(int start) {
+            this.start = start;
+        }
+
+        private int[] positions() {
+            int[] result = located;
+            if (result == null) {
+                result = new int[16];
+                int size = 0;
+                int end = containerEnd(start);
+                int position = skipWhitespace(start + 1);
+                while (position < end) {
+                    if (size == result.length) {
+                        result = Arrays.copyOf(result, size * 2);
+                    }
+                    result[size++] = position;
+                    position = nextElement(valueEnd(position), end);
+                }
+                result = Arrays.copyOf(result, size);
+                values = new Object[size];
+                located = result;
+            }
+            return result;
+        }
+
+        @Override
+        public Object get(int index) {
+            int[] located = positions();
+            Objects.checkIndex(index, located.length);
+            return cachedValue(values, index, located[index]);
+        }
+
+        @Override
+        public int size() {
+            return positions().length;
+        }
+    }
+}
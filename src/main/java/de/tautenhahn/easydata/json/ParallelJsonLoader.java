@@ -0,0 +1,305 @@
+package de.tautenhahn.easydata.json;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.google.gson.Gson;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+
+/**
+ * Reads a big file containing either one top level JSON array or JSON Lines, parsing parts of it in parallel. A
+ * file is read as one array if its first complete value is an array followed by nothing else, so JSON Lines may
+ * contain arrays as well. The
+ * file is split into byte ranges at element boundaries, each range is parsed by Gson in its own task and the
+ * results are concatenated in order. Elements are represented as by Gson, so the result looks exactly like an
+ * array read by AccessibleData. Use <code>AccessibleData.byBean(Map.of("records",
+ * ParallelJsonLoader.load(file)))</code>. <br>
+ * Finding the boundaries inside an array requires one sequential pass over the bytes which is much cheaper than
+ * parsing. In JSON Lines files any line break is a boundary because JSON strings cannot contain one.
+ *
+ * @author TT
+ */
+public final class ParallelJsonLoader {
+
+    private static final TypeAdapter<Object> VALUES = new Gson().getAdapter(Object.class);
+
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+
+    private final long chunkSize;
+
+    /**
+     * Positions separating the parts to parse, each part lies strictly between two adjacent positions.
+     */
+    private long[] boundaries = new long[16];
+
+    private int numberBoundaries;
+
+    private ParallelJsonLoader(FileChannel channel, long chunkSize) {
+        this.channel = channel;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads the file using the common pool.
+     *
+     * @param file contains a JSON array or JSON Lines
+     * @return the elements of the array or the values in the lines
+     * @throws IOException in case of streaming problems or invalid JSON
+     */
+    public static List<Object> load(Path file) throws IOException {
+        return load(file, ForkJoinPool.commonPool()); // NOPMD parallel parsing is the point here
+    }
+
+    /**
+     * Reads the file using the specified pool.
+     *
+     * @param file contains a JSON array or JSON Lines
+     * @param pool executes the parsing tasks
+     * @return the elements of the array or the values in the lines
+     * @throws IOException in case of streaming problems or invalid JSON
+     */
+    public static List<Object> load(Path file, ForkJoinPool pool) throws IOException { // NOPMD see above
+        return load(file, pool, 0);
+    }
+
+    /**
+     * @param chunkSize approximate size of the parts in bytes, 0 to choose by file size and parallelism
+     */
+    static List<Object> load(Path file, ForkJoinPool pool, long chunkSize) throws IOException { // NOPMD see above
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long effectiveChunkSize = chunkSize > 0 ? chunkSize
+                    : Math.max(MIN_CHUNK_SIZE, size / ((long) pool.getParallelism() * CHUNKS_PER_THREAD));
+            return new ParallelJsonLoader(channel, effectiveChunkSize).parse(pool);
+        }
+    }
+
+    private List<Object> parse(ForkJoinPool pool) throws IOException { // NOPMD see above
+        long start = firstNonWhitespace(0);
+        boolean array = start < channel.size() && readByte(start) == '[' && isOnlyValue(start);
+        if (!array) {
+            numberBoundaries = 0;
+            findLineBoundaries();
+        }
+        List<ForkJoinTask<List<Object>>> parts = new ArrayList<>();
+        for (int i = 1; i < numberBoundaries; i++) {
+            long from = boundaries[i - 1] + 1;
+            long to = boundaries[i];
+            parts.add(pool.submit(() -> parsePart(from, to, array)));
+        }
+        List<Object> result = new ArrayList<>();
+        for (ForkJoinTask<List<Object>> part : parts) {
+            result.addAll(resultOf(part));
+        }
+        return result;
+    }
+
+    private static List<Object> resultOf(ForkJoinTask<List<Object>> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException("interrupted while parsing JSON").initCause(e);
+        } catch (ExecutionException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+            }
+            throw new IllegalStateException("parsing JSON failed", e);
+        }
+    }
+
+    /**
+     * Parses the bytes between two boundaries. Parts of an array are enclosed in brackets to form an array again.
+     */
+    private List<Object> parsePart(long from, long to, boolean array) throws IOException {
+        int length = Math.toIntExact(to - from);
+        byte[] bytes = new byte[length + 2];
+        ByteBuffer target = ByteBuffer.wrap(bytes, 1, length);
+        while (target.hasRemaining()) {
+            if (channel.read(target, from + target.position() - 1) < 0) {
+                throw new EOFException("file was truncated while reading it");
+            }
+        }
+        bytes[0] = (byte) (array ? '[' : ' ');
+        bytes[length + 1] = (byte) (array ? ']' : ' ');
+        String content = new String(bytes, StandardCharsets.UTF_8);
+        if (content.isBlank()) {
+            return List.of();
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(content))) {
+            reader.setStrictness(Strictness.LENIENT);
+            if (array) {
+                @SuppressWarnings("unchecked")
+                List<Object> elements = (List<Object>) VALUES.read(reader);
+                return elements;
+            }
+            List<Object> result = new ArrayList<>();
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                result.add(VALUES.read(reader));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Decides between one array and JSON Lines by the first complete top level value. Its array boundaries are
+     * already collected if it is the only value.
+     *
+     * @param start position of the opening bracket
+     * @return true if nothing but whitespace follows the array
+     */
+    private boolean isOnlyValue(long start) throws IOException {
+        findArrayBoundaries(start);
+        return firstNonWhitespace(boundaries[numberBoundaries - 1] + 1) == channel.size();
+    }
+
+    /**
+     * Collects positions of commas separating elements of the top level array, about one per chunk size, and the
+     * position of the closing bracket.
+     */
+    private void findArrayBoundaries(long start) throws IOException {
+        addBoundary(start);
+        Structure structure = new Structure();
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        long offset = start;
+        long nextSplit = start + chunkSize;
+        while (channel.read(buffer.clear(), offset) > 0) {
+            for (int i = 0; i < buffer.position(); i++) {
+                if (structure.separatesElements(buffer.get(i))) {
+                    long position = offset + i;
+                    if (structure.depth == 0) {
+                        addBoundary(position);
+                        return;
+                    }
+                    if (position >= nextSplit) {
+                        addBoundary(position);
+                        nextSplit = position + chunkSize;
+                    }
+                }
+            }
+            offset += buffer.position();
+        }
+        throw new EOFException("JSON array is not terminated");
+    }
+
+    /**
+     * Collects positions of line breaks, about one per chunk size, and the end of the file.
+     */
+    private void findLineBoundaries() throws IOException {
+        long size = channel.size();
+        addBoundary(-1);
+        long lineBreak = nextLineBreak(chunkSize);
+        while (lineBreak < size) {
+            addBoundary(lineBreak);
+            lineBreak = nextLineBreak(lineBreak + chunkSize);
+        }
+        addBoundary(size);
+    }
+
+    /**
+     * @return position of the next line break at or after start, size of the file if there is none
+     */
+    private long nextLineBreak(long start) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        long offset = start;
+        while (channel.read(buffer.clear(), offset) > 0) {
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i;
+                }
+            }
+            offset += buffer.position();
+        }
+        return channel.size();
+    }
+
+    private long firstNonWhitespace(long from) throws IOException {
+        long position = from;
+        while (position < channel.size() && Character.isWhitespace(readByte(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private byte readByte(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        if (channel.read(buffer, position) < 1) {
+            throw new EOFException("file was truncated while reading it");
+        }
+        return buffer.get(0);
+    }
+
+    private void addBoundary(long position) {
+        if (numberBoundaries == boundaries.length) {
+            boundaries = Arrays.copyOf(boundaries, numberBoundaries * 2);
+        }
+        boundaries[numberBoundaries++] = position;
+    }
+
+    /**
+     * Tracks nesting and strings while scanning JSON byte by byte.
+     */
+    private static final class Structure {
+
+        private int depth;
+
+        private boolean inString;
+
+        private boolean escaped;
+
+        /**
+         * @return true if b is a comma directly inside the top level array or the bracket closing it
+         */
+        boolean separatesElements(byte b) {
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else {
+                    escaped = b == '\\';
+                    inString = b != '"';
+                }
+                return false;
+            }
+            switch (b) {
+                case '"' -> inString = true;
+                case '[', '{' -> depth++;
+                case ']', '}' -> {
+                    depth--;
+                    return depth == 0;
+                }
+                case ',' -> {
+                    return depth == 1;
+                }
+                default -> {
+                    // no structure
+                }
+            }
+            return false;
+        }
+    }
+}
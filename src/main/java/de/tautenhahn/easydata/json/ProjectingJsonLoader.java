@@ -0,0 +1,154 @@
+package de.tautenhahn.easydata.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+
+/**
+ * Reads only those parts of a JSON object which are addressed by given paths, all other values are skipped without
+ * creating any objects for them. Use the paths obtained by <code>CompiledTemplate.getReferencedPaths()</code> to
+ * render a big document of which the template shows only a small part. <br>
+ * Paths are dot separated member names or array indexes, {@link #ANY} addresses every member or element. The
+ * value at the end of a path is read completely as by Gson. Array elements not addressed by any path are
+ * replaced by null to keep the indexes of the other elements.
+ *
+ * @author TT
+ */
+public final class ProjectingJsonLoader {
+
+    /**
+     * Path element addressing every member of an object or element of an array.
+     */
+    public static final String ANY = "*";
+
+    private static final TypeAdapter<Object> VALUES = new Gson().getAdapter(Object.class);
+
+    private final JsonReader reader;
+
+    private ProjectingJsonLoader(Reader json) {
+        reader = new JsonReader(json);
+        reader.setStrictness(Strictness.LENIENT);
+    }
+
+    /**
+     * Reads the addressed parts of a JSON object.
+     *
+     * @param json  JSON object, is not closed
+     * @param paths addressed values
+     * @return content of the object, containing the addressed values and all objects and arrays leading to them
+     * @throws IOException in case of streaming problems
+     */
+    public static Map<String, Object> load(Reader json, Collection<String> paths) throws IOException {
+        Node root = new Node();
+        paths.forEach(p -> root.add(p.split("\\.")));
+        ProjectingJsonLoader loader = new ProjectingJsonLoader(json);
+        if (loader.reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new JsonSyntaxException("expected JSON object but found " + loader.reader.peek());
+        }
+        return loader.readObject(root);
+    }
+
+    private Object read(Node node) throws IOException {
+        if (node.whole) {
+            return VALUES.read(reader);
+        }
+        return switch (reader.peek()) {
+            case BEGIN_OBJECT -> readObject(node);
+            case BEGIN_ARRAY -> readArray(node);
+            default -> VALUES.read(reader);
+        };
+    }
+
+    private Map<String, Object> readObject(Node node) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            Node member = node.member(name);
+            if (member == null) {
+                reader.skipValue();
+            } else if (result.put(name, read(member)) != null) {
+                throw new JsonSyntaxException("duplicate key: " + name);
+            }
+        }
+        reader.endObject();
+        return result;
+    }
+
+    private List<Object> readArray(Node node) throws IOException {
+        List<Object> result = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Node element = node.element(result.size());
+            if (element == null) {
+                reader.skipValue();
+                result.add(null);
+            } else {
+                result.add(read(element));
+            }
+        }
+        reader.endArray();
+        return result;
+    }
+
+    /**
+     * Addressed value with its addressed members.
+     */
+    private static final class Node {
+
+        private final Map<String, Node> members = new HashMap<>();
+
+        /**
+         * Members addressed by name and by {@link #ANY} at the same time.
+         */
+        private final Map<String, Node> combined = new HashMap<>();
+
+        /**
+         * Value is read completely.
+         */
+        private boolean whole;
+
+        void add(String... path) {
+            Node node = this;
+            for (String name : path) {
+                node = node.members.computeIfAbsent(name, n -> new Node());
+            }
+            node.whole = true;
+        }
+
+        Node member(String name) {
+            Node named = members.get(name);
+            Node any = members.get(ANY);
+            if (named == null || any == null) {
+                return named == null ? any : named;
+            }
+            return combined.computeIfAbsent(name, n -> merge(named, any));
+        }
+
+        Node element(int index) {
+            return members.size() == 1 && members.containsKey(ANY) ? members.get(ANY)
+                    : member(Integer.toString(index));
+        }
+
+        private static Node merge(Node first, Node second) {
+            Node result = new Node();
+            result.whole = first.whole || second.whole;
+            result.members.putAll(first.members);
+            second.members.forEach((name, node) -> result.members.merge(name, node, Node::merge));
+            return result;
+        }
+    }
+}
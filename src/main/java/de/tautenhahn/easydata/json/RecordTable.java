@@ -0,0 +1,160 @@
+package de.tautenhahn.easydata.json;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+
+/**
+ * Array of JSON objects which all have the same members, stored by columns. Columns holding numbers only are
+ * primitive arrays, all other columns are object arrays. The elements are presented as immutable maps created when
+ * accessed. Selecting a member or sorting by a numeric member works on the column without touching the elements.
+ *
+ * @author TT
+ */
+public final class RecordTable extends AbstractList<Object> implements RandomAccess {
+
+    private static final int MIN_ROWS = 2;
+
+    private final Shape shape;
+
+    private final int rows;
+
+    private final List<IntFunction<Object>> columns = new ArrayList<>();
+
+    /**
+     * Values of the numeric columns, null for other columns.
+     */
+    private final double[][] numbers;
+
+    private RecordTable(Shape shape, List<Object> records) {
+        this.shape = shape;
+        rows = records.size();
+        numbers = new double[shape.size()][];
+        for (int column = 0; column < shape.size(); column++) {
+            Object[] values = new Object[rows];
+            for (int row = 0; row < rows; row++) {
+                values[row] = ((ShapedMap) records.get(row)).value(column);
+            }
+            if (Arrays.stream(values).allMatch(Double.class::isInstance)) {
+                double[] primitive = Arrays.stream(values).mapToDouble(Double.class::cast).toArray();
+                numbers[column] = primitive;
+                columns.add(row -> primitive[row]);
+            } else {
+                columns.add(row -> values[row]);
+            }
+        }
+    }
+
+    /**
+     * Stores the elements by columns if possible.
+     *
+     * @param elements read JSON array
+     * @return record table if all elements are objects with the same members, otherwise the elements
+     */
+    static List<Object> of(List<Object> elements) {
+        if (elements.size() < MIN_ROWS || !(elements.get(0) instanceof ShapedMap first) || first.shape().size() == 0) {
+            return elements;
+        }
+        for (Object element : elements) {
+            if (!(element instanceof ShapedMap map) || !first.shape().equals(map.shape())) {
+                return elements;
+            }
+        }
+        return new RecordTable(first.shape(), elements);
+    }
+
+    @Override
+    public Object get(int index) {
+        return new Record(Objects.checkIndex(index, rows));
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Returns the values of one member of all elements.
+     *
+     * @param path attribute path relative to the elements
+     * @return values in element order, empty if the path does not address a member directly
+     */
+    public Optional<List<Object>> column(String... path) {
+        int column = path.length == 1 ? shape.indexOf(path[0]) : -1;
+        if (column < 0) {
+            return Optional.empty();
+        }
+        IntFunction<Object> values = columns.get(column);
+        return Optional.of(new AbstractList<>() {
+
+            @Override
+            public Object get(int index) {
+                return values.apply(Objects.checkIndex(index, rows));
+            }
+
+            @Override
+            public int size() {
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * Returns the elements sorted by a numeric member. The order of elements with equal values is kept.
+     *
+     * @param path      attribute path relative to the elements
+     * @param ascending specifies order
+     * @return sorted elements, empty if the path does not address a numeric member directly
+     */
+    public Optional<List<Object>> sortedBy(String[] path, boolean ascending) {
+        int column = path.length == 1 ? shape.indexOf(path[0]) : -1;
+        if (column < 0 || numbers[column] == null) {
+            return Optional.empty();
+        }
+        double[] values = numbers[column];
+        int direction = ascending ? 1 : -1;
+        Integer[] order = new Integer[rows];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]) * direction);
+        return Optional.of(new AbstractList<>() {
+
+            @Override
+            public Object get(int index) {
+                return new Record(order[index]);
+            }
+
+            @Override
+            public int size() {
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * One element, reading its values from the columns.
+     */
+    private final class Record extends ShapedMap {
+
+        private final int index;
+
+        Record(int index) {
+            this.index = index;
+        }
+
+        @Override
+        Shape shape() {
+            return shape;
+        }
+
+        @Override
+        Object value(int column) {
+            return columns.get(column).apply(index);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package de.tautenhahn.easydata.json;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Member names of objects and a hash table to find their positions. Objects having the same names in the same
+ * order share one shape. Each added name copies the names, so shapes are only worth it for records with few
+ * members. Shapes with more than {@link #MAX_KEYS} names and more than {@link #MAX_SHAPES} shapes per tree are
+ * not created, objects which would need one are stored in plain maps instead.
+ *
+ * @author TT
+ */
+final class Shape {
+
+    /**
+     * Maximum number of names of a shape, objects with more members are like dictionaries rather than records.
+     */
+    static final int MAX_KEYS = 32;
+
+    /**
+     * Maximum number of shapes reached from one empty shape, differing name orders must not grow it unbounded.
+     */
+    static final int MAX_SHAPES = 1024;
+
+    private final Shape root;
+
+    private int created;
+
+    private final String[] keys;
+
+    /**
+     * Open addressing hash table holding position + 1 of each key, 0 for empty slots.
+     */
+    private final int[] table;
+
+    private final Map<String, Shape> transitions = new HashMap<>();
+
+    /**
+     * Creates the shape of the empty object, all other shapes are reached from it by adding names.
+     */
+    Shape() {
+        root = this;
+        keys = new String[0];
+        table = new int[1];
+    }
+
+    private Shape(Shape root, String... keys) {
+        this.root = root;
+        this.keys = keys;
+        table = new int[Integer.highestOneBit(keys.length * 2 + 1) * 2];
+        for (int i = 0; i < keys.length; i++) {
+            int slot = keys[i].hashCode() & table.length - 1;
+            while (table[slot] != 0) {
+                slot = slot + 1 & table.length - 1;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Returns the shape with one more name, the first instance of that name is shared by all objects.
+     *
+     * @param key name to add
+     * @return shape with that name added at the end, null if that shape would exceed one of the limits
+     */
+    Shape with(String key) {
+        Shape result = transitions.get(key);
+        if (result == null && keys.length < MAX_KEYS && root.created < MAX_SHAPES) {
+            String[] extended = Arrays.copyOf(keys, keys.length + 1);
+            extended[keys.length] = key;
+            result = new Shape(root, extended);
+            transitions.put(key, result);
+            root.created++;
+        }
+        return result;
+    }
+
+    /**
+     * @param key member name
+     * @return position of that member, -1 if there is none
+     */
+    int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        int slot = key.hashCode() & table.length - 1;
+        while (table[slot] != 0) {
+            String candidate = keys[table[slot] - 1];
+            if (candidate.equals(key)) {
+                return table[slot] - 1;
+            }
+            slot = slot + 1 & table.length - 1;
+        }
+        return -1;
+    }
+
+    String key(int index) {
+        return keys[index];
+    }
+
+    int size() {
+        return keys.length;
+    }
+}
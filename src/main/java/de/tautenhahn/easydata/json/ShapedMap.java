@@ -0,0 +1,78 @@
+package de.tautenhahn.easydata.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Immutable map taking the member names from a shape, subclasses provide the values by position.
+ *
+ * @author TT
+ */
+abstract class ShapedMap extends AbstractMap<String, Object> {
+
+    /**
+     * @return names of the members
+     */
+    abstract Shape shape();
+
+    /**
+     * @param index position of a member
+     * @return value of that member
+     */
+    abstract Object value(int index);
+
+    @Override
+    public Object get(Object key) {
+        int index = shape().indexOf(key);
+        return index < 0 ? null : value(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return shape().indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return shape().size();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+
+                    private int position;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < size();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (position >= size()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, Object> result = new SimpleImmutableEntry<>(shape().key(position),
+                                                                                  value(position));
+                        position++;
+                        return result;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ShapedMap.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,348 @@
+package de.tautenhahn.easydata.json;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+
+/**
+ * Binary snapshot of data as read from JSON, to be reloaded much faster than parsing the JSON again. Member names
+ * are stored once per object shape, numbers as binary doubles and strings as UTF-8 bytes. Reading maps the file
+ * and builds the same compact objects as {@link CompactJson}. Use
+ * <code>AccessibleData.byBean(Snapshot.read(file))</code>. <br>
+ * Supported are maps with string keys, collections, arrays, strings, numbers, booleans and null. Numbers are read
+ * back as Double like from JSON. Snapshot files must not exceed 2 GB.
+ *
+ * @author TT
+ */
+public final class Snapshot {
+
+    private static final int MAGIC = 0x45445331;
+
+    private static final byte NULL = 0;
+
+    private static final byte TRUE = 1;
+
+    private static final byte FALSE = 2;
+
+    private static final byte NUMBER = 3;
+
+    private static final byte STRING = 4;
+
+    private static final byte ARRAY = 5;
+
+    /**
+     * Object with a shape not written before, followed by the names.
+     */
+    private static final byte NEW_SHAPE = 6;
+
+    /**
+     * Object with a shape already written, followed by its number.
+     */
+    private static final byte KNOWN_SHAPE = 7;
+
+    /**
+     * Object with too many members to have a shape, followed by the number of members and names with values.
+     */
+    private static final byte PLAIN_OBJECT = 8;
+
+    private final Map<List<String>, Integer> writtenShapes = new HashMap<>();
+
+    private final List<String[]> readNames = new ArrayList<>();
+
+    /**
+     * Shapes in the same order as {@link #readNames}, null for names exceeding the limits of {@link Shape}.
+     */
+    private final List<Shape> readShapes = new ArrayList<>();
+
+    private final Shape root = new Shape();
+
+    private Snapshot() {
+        // created for one reading or writing only
+    }
+
+    /**
+     * Writes a snapshot.
+     *
+     * @param data map with string keys, for instance obtained by <code>AccessibleData.getData()</code>
+     * @param file target file
+     * @throws IOException              in case of streaming problems
+     * @throws IllegalArgumentException if the data contains unsupported objects
+     */
+    public static void write(Map<?, ?> data, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            new Snapshot().writeValue(data, out);
+        }
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param file written by {@link #write(Map, Path)}
+     * @return the data
+     * @throws IOException in case of streaming problems or if the file is not a snapshot
+     */
+    public static Map<String, Object> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("file " + file + " too big to be mapped");
+            }
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < Integer.BYTES + 1 || in.getInt() != MAGIC
+                || in.get(in.position()) != NEW_SHAPE && in.get(in.position()) != PLAIN_OBJECT) {
+                throw new IOException("file " + file + " is not a snapshot");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> result = (Map<String, Object>) new Snapshot().readValue(in);
+            return result;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("snapshot " + file + " is truncated", e);
+        }
+    }
+
+    /**
+     * Writes a sequence of values, for instance to move data out of memory for a while.
+     *
+     * @param values supported are the same types as in data of {@link #write(Map, Path)}
+     * @param file   target file
+     * @throws IOException              in case of streaming problems
+     * @throws IllegalArgumentException if a value contains unsupported objects
+     */
+    public static void writeValues(Iterable<?> values, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            Snapshot snapshot = new Snapshot();
+            for (Object value : values) {
+                snapshot.writeValue(value, out);
+            }
+        }
+    }
+
+    /**
+     * Reads values written by {@link #writeValues(Iterable, Path)}. The file is mapped and each value is read
+     * when requested.
+     *
+     * @param file written by {@link #writeValues(Iterable, Path)}
+     * @return values in written order, throws {@link UncheckedIOException} if the file is corrupt
+     * @throws IOException in case of streaming problems or if the file is not a snapshot
+     */
+    public static Iterator<Object> readValues(Path file) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("file " + file + " too big to be mapped");
+            }
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.remaining() < Integer.BYTES || in.getInt() != MAGIC) {
+            throw new IOException("file " + file + " is not a snapshot");
+        }
+        Snapshot snapshot = new Snapshot();
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return in.hasRemaining();
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return snapshot.readValue(in);
+                } catch (BufferUnderflowException e) {
+                    throw new UncheckedIOException(new IOException("snapshot " + file + " is truncated", e));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns whether a value is read back by {@link #readValues(Path)} as an equal value of the same types. This
+     * holds for data as read from JSON: null, booleans, Doubles, strings and lists or maps with string keys of such
+     * values. Other numbers are read back as Double, other collections as lists and beans cannot be written at all.
+     *
+     * @param value any object
+     * @return true if the value can be written and read back unchanged
+     */
+    public static boolean preserves(Object value) {
+        if (value == null || value instanceof Boolean || value instanceof Double || value instanceof String) {
+            return true;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().allMatch(Snapshot::preserves);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.entrySet().stream().allMatch(e -> e.getKey() instanceof String && preserves(e.getValue()));
+        }
+        return false;
+    }
+
+    private void writeValue(Object value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(b ? TRUE : FALSE);
+        } else if (value instanceof Number n) {
+            out.writeByte(NUMBER);
+            out.writeDouble(n.doubleValue());
+        } else if (value instanceof String s) {
+            out.writeByte(STRING);
+            writeString(s, out);
+        } else if (value instanceof Map<?, ?> map) {
+            writeObject(map, out);
+        } else if (value instanceof Collection<?> || value.getClass().isArray()) {
+            writeArray(value, out);
+        } else {
+            throw new IllegalArgumentException("cannot write " + value.getClass().getName() + " into snapshot");
+        }
+    }
+
+    private void writeArray(Object array, DataOutputStream out) throws IOException {
+        Collection<?> elements = array instanceof Collection<?> c ? c
+                : IntStream.range(0, Array.getLength(array)).mapToObj(i -> Array.get(array, i)).toList();
+        out.writeByte(ARRAY);
+        out.writeInt(elements.size());
+        for (Object element : elements) {
+            writeValue(element, out);
+        }
+    }
+
+    private void writeObject(Map<?, ?> map, DataOutputStream out) throws IOException {
+        if (map.size() > Shape.MAX_KEYS) {
+            writePlainObject(map, out);
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        map.keySet().forEach(k -> names.add(String.valueOf(k)));
+        Integer known = writtenShapes.get(names);
+        if (known == null && writtenShapes.size() >= Shape.MAX_SHAPES) {
+            writePlainObject(map, out);
+        } else if (known == null) {
+            out.writeByte(NEW_SHAPE);
+            out.writeInt(names.size());
+            for (String name : names) {
+                writeString(name, out);
+            }
+            writtenShapes.put(names, writtenShapes.size());
+        } else {
+            out.writeByte(KNOWN_SHAPE);
+            out.writeInt(known);
+        }
+        for (Object value : map.values()) {
+            writeValue(value, out);
+        }
+    }
+
+    private void writePlainObject(Map<?, ?> map, DataOutputStream out) throws IOException {
+        out.writeByte(PLAIN_OBJECT);
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(String.valueOf(entry.getKey()), out);
+            writeValue(entry.getValue(), out);
+        }
+    }
+
+    private static void writeString(String value, DataOutputStream out) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private Object readValue(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        return switch (type) {
+            case NULL -> null;
+            case TRUE -> Boolean.TRUE;
+            case FALSE -> Boolean.FALSE;
+            case NUMBER -> in.getDouble();
+            case STRING -> readString(in);
+            case ARRAY -> readArray(in);
+            case NEW_SHAPE -> readObject(readShape(in), in);
+            case KNOWN_SHAPE -> readObject(in.getInt(), in);
+            case PLAIN_OBJECT -> readPlainObject(in);
+            default -> throw new IOException("invalid snapshot content at byte " + (in.position() - 1));
+        };
+    }
+
+    private List<Object> readArray(ByteBuffer in) throws IOException {
+        int size = in.getInt();
+        List<Object> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(readValue(in));
+        }
+        return RecordTable.of(result);
+    }
+
+    /**
+     * @return number of the shape read
+     */
+    private int readShape(ByteBuffer in) {
+        String[] names = new String[in.getInt()];
+        Shape shape = root;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = readString(in);
+            shape = shape == null ? null : shape.with(names[i]);
+        }
+        readNames.add(names);
+        readShapes.add(shape);
+        return readShapes.size() - 1;
+    }
+
+    private Map<String, Object> readObject(int shapeNumber, ByteBuffer in) throws IOException {
+        String[] names = readNames.get(shapeNumber);
+        Object[] values = new Object[names.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(in);
+        }
+        Shape shape = readShapes.get(shapeNumber);
+        if (shape != null) {
+            return new CompactJson.CompactMap(shape, values);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            result.put(names[i], values[i]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private Map<String, Object> readPlainObject(ByteBuffer in) throws IOException {
+        int size = in.getInt();
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String name = readString(in);
+            result.put(name, readValue(in));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,191 @@
+package de.tautenhahn.easydata.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+import com.google.gson.Gson;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import de.tautenhahn.easydata.ResolverException;
+
+
+/**
+ * Reads JSON data containing one array which is too big to be held in memory. That array is represented by a
+ * collection which reads its elements from the input while being iterated, so a FOR tag over it needs memory
+ * for one element only. All other values are read as by Gson. <br>
+ * The streamed array can be iterated only once and has no size, so a template must not ask for its size, keys or
+ * emptiness. Values which follow it in the JSON document are added to the
+ * data when the iteration has finished, so a template should access them after the loop only. The reader must
+ * stay open until then.
+ *
+ * @author TT
+ */
+public final class StreamingJsonLoader {
+
+    private static final TypeAdapter<Object> VALUES = new Gson().getAdapter(Object.class);
+
+    private final JsonReader reader;
+
+    private final String[] path;
+
+    /**
+     * Objects containing the streamed array, innermost first. Their content is read up to that array.
+     */
+    private final List<Map<String, Object>> unfinished = new ArrayList<>();
+
+    private boolean streaming;
+
+    private StreamingJsonLoader(Reader json, String... path) {
+        reader = new JsonReader(json);
+        reader.setStrictness(Strictness.LENIENT);
+        this.path = path;
+    }
+
+    /**
+     * Reads the JSON object up to the streamed array.
+     *
+     * @param json      JSON object, must not be closed until the streamed array has been iterated
+     * @param arrayPath dot separated keys leading from the root object to the array to stream. If there is no
+     *                  array at that path, the whole document is read.
+     * @return content of the object, streamed array represented as collection
+     * @throws IOException in case of streaming problems
+     */
+    public static Map<String, Object> load(Reader json, String arrayPath) throws IOException {
+        return new StreamingJsonLoader(json, arrayPath.split("\\.")).readObject(0);
+    }
+
+    private Map<String, Object> readObject(int depth) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            boolean onPath = depth < path.length && path[depth].equals(name);
+            result.put(name, onPath ? readOnPath(depth) : VALUES.read(reader));
+            if (streaming) {
+                unfinished.add(result);
+                return result;
+            }
+        }
+        reader.endObject();
+        return result;
+    }
+
+    private Object readOnPath(int depth) throws IOException {
+        JsonToken next = reader.peek();
+        if (depth == path.length - 1 && next == JsonToken.BEGIN_ARRAY) {
+            streaming = true;
+            return new StreamedArray();
+        }
+        if (depth < path.length - 1 && next == JsonToken.BEGIN_OBJECT) {
+            return readObject(depth + 1);
+        }
+        return VALUES.read(reader);
+    }
+
+    /**
+     * Reads the values following the streamed array.
+     */
+    private void finishObjects() throws IOException {
+        for (Map<String, Object> object : unfinished) {
+            while (reader.hasNext()) {
+                object.put(reader.nextName(), VALUES.read(reader));
+            }
+            reader.endObject();
+        }
+        unfinished.clear();
+    }
+
+    /**
+     * The array read while being iterated. The size is not known before the end is reached.
+     */
+    private final class StreamedArray extends AbstractCollection<Object> {
+
+        private boolean iterated;
+
+        @Override
+        public Iterator<Object> iterator() {
+            if (iterated) {
+                throw new IllegalStateException("streamed array " + String.join(".", path)
+                        + " can be iterated only once");
+            }
+            iterated = true;
+            return new Elements();
+        }
+
+        @Override
+        public Spliterator<Object> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+        }
+
+        /**
+         * Counting the elements would consume them, so neither size nor emptiness can be asked for.
+         */
+        @Override
+        public int size() {
+            throw new ResolverException("streamed array " + String.join(".", path)
+                    + " cannot be sized because its elements are read only while iterating it once");
+        }
+
+        @Override
+        public String toString() {
+            return "streamed array " + String.join(".", path);
+        }
+    }
+
+    /**
+     * Reads one element at a time.
+     */
+    private final class Elements implements Iterator<Object> {
+
+        private boolean started;
+
+        private boolean finished;
+
+        @Override
+        public boolean hasNext() {
+            if (finished) {
+                return false;
+            }
+            try {
+                if (!started) {
+                    reader.beginArray();
+                    started = true;
+                }
+                if (reader.hasNext()) {
+                    return true;
+                }
+                reader.endArray();
+                finished = true;
+                finishObjects();
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                return VALUES.read(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
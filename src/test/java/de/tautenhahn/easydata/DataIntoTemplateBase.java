@@ -1,5 +1,7 @@
 package de.tautenhahn.easydata;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -7,8 +9,12 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Objects;
 
 
@@ -19,6 +25,8 @@ import java.util.Objects;
  */
 public class DataIntoTemplateBase {
 
+    private static final String FAILED = "failed: ";
+
     /**
      * Reads some data from a JSON file from test resources.
      *
@@ -34,7 +42,9 @@ public class DataIntoTemplateBase {
     }
 
     /**
-     * Actually performs the expanding.
+     * Actually performs the expanding. The template is also compiled and rendered by each
+     * {@link CompiledTemplate.Engine}, which must give the same result or fail with the same message.
+     *
      * @param template  contains the tags to expand
      * @param data      values to insert
      * @param beginning character opening the special tags
@@ -45,14 +55,73 @@ public class DataIntoTemplateBase {
      */
     protected String doExpand(String template, AccessibleData data, char beginning, char marker, char ending)
             throws IOException {
+        DataIntoTemplate systemUnderTest = new DataIntoTemplate(data, beginning, marker, ending);
+        Map<CompiledTemplate.Engine, String> byEngine = new EnumMap<>(CompiledTemplate.Engine.class);
+        for (CompiledTemplate.Engine engine : CompiledTemplate.Engine.values()) {
+            byEngine.put(engine, renderCompiled(template, data, engine, beginning, marker, ending));
+        }
+        String result;
+        try {
+            result = expand(systemUnderTest, template);
+        } catch (RuntimeException e) {
+            byEngine.forEach((engine, r) -> assertThat(r).as(engine.name()).isEqualTo(FAILED + e.getMessage()));
+            throw e;
+        }
+        byEngine.forEach((engine, r) -> assertThat(r).as(engine.name()).isEqualTo(result));
+        return result;
+    }
+
+    /**
+     * Same as {@link #doExpand(String, AccessibleData, char, char, char)} without compiling the template, for data
+     * which can be read only once.
+     *
+     * @param template  contains the tags to expand
+     * @param data      values to insert
+     * @param beginning character opening the special tags
+     * @param marker    second character opening the special tags
+     * @param ending    closing the special tags
+     * @return expanded template.
+     * @throws IOException in case of streaming problems
+     */
+    protected String doExpandOnce(String template, AccessibleData data, char beginning, char marker, char ending)
+            throws IOException {
+        return expand(new DataIntoTemplate(data, beginning, marker, ending), template);
+    }
+
+    private static String expand(DataIntoTemplate systemUnderTest, String template) throws IOException {
         try (InputStream insRes = new ByteArrayInputStream(template.getBytes(StandardCharsets.UTF_8));
              Reader reader = new InputStreamReader(insRes, StandardCharsets.UTF_8);
              ByteArrayOutputStream out = new ByteArrayOutputStream();
              Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
-            DataIntoTemplate systemUnderTest = new DataIntoTemplate(data, beginning, marker, ending);
             systemUnderTest.fillData(reader, writer);
             writer.flush();
             return out.toString(StandardCharsets.UTF_8);
         }
     }
+
+    private static String renderCompiled(String template, AccessibleData data, CompiledTemplate.Engine engine,
+                                         char beginning, char marker, char ending) throws IOException {
+        try {
+            CompiledTemplate compiled = CompiledTemplate.compile(new StringReader(template), beginning, marker, ending);
+            compiled.setEngine(engine);
+            assertThat(compiled.getEngine()).isEqualTo(engine);
+            return render(compiled, data);
+        } catch (RuntimeException e) {
+            return FAILED + e.getMessage();
+        }
+    }
+
+    /**
+     * Renders a compiled template.
+     *
+     * @param template compiled template to render
+     * @param data     values to insert
+     * @return rendered document
+     * @throws IOException in case of streaming problems
+     */
+    protected static String render(CompiledTemplate template, AccessibleData data) throws IOException {
+        StringWriter output = new StringWriter();
+        template.render(data, output);
+        return output.toString();
+    }
 }
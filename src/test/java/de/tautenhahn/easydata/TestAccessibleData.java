@@ -54,6 +54,31 @@ class TestAccessibleData {
         assertThat(result).containsExactly("2", "1", "0");
     }
 
+    /**
+     * Asserts that sorting by keys gives the same order as comparing the elements one by one, for numeric,
+     * textual and mixed keys, in both directions and for collections sorted in parallel.
+     */
+    @Test
+    void sortByKeys() {
+        Random random = new Random(42);
+        List<Object> elements = new ArrayList<>();
+        for (int i = 0; i < KeySort.PARALLEL_THRESHOLD + 100; i++) {
+            int value = random.nextInt(1000);
+            elements.add(Map.of("number", Double.valueOf(value), "numeric", Integer.toString(value), "text",
+                                "t" + value, "mixed", value % 3 == 0 ? "t" + value : Integer.toString(value), "index", i));
+        }
+        for (String attribute : new String[] {"number", "numeric", "text", "mixed"}) {
+            for (boolean ascending : new boolean[] {true, false}) {
+                List<Object> expected = new ArrayList<>(elements);
+                expected.sort((a, b) -> AccessibleData.compare(((Map<?, ?>) a).get(attribute),
+                                                               ((Map<?, ?>) b).get(attribute), ascending));
+                assertThat(systemUnderTest.sort(elements, attribute, ascending)).isEqualTo(expected);
+                assertThat(systemUnderTest.sort(elements.subList(0, 100), attribute, ascending))
+                        .isEqualTo(expected.stream().filter(e -> (int) ((Map<?, ?>) e).get("index") < 100).toList());
+            }
+        }
+    }
+
     /**
      * Assert that bean attributes can be accessed.
      */
@@ -65,6 +90,61 @@ class TestAccessibleData {
         assertThat(byBean.getString("bean.timeZone")).isNotEmpty();
     }
 
+    /**
+     * Assert that record components, public fields and boolean getters can be accessed as well.
+     */
+    @Test
+    void recordAndField() {
+        FieldHolder holder = new FieldHolder();
+        AccessibleData data = AccessibleData.byBean(Map.of("point", new Point(3, "center"), "holder", holder));
+        assertThat(data.getString("point.x")).isEqualTo("3");
+        assertThat(data.getString("point.name")).isEqualTo("center");
+        assertThat(data.getCollection("point", ListMode.KEYS)).isEqualTo(List.of("x", "name"));
+        assertThat(data.getCollection("point", ListMode.VALUES)).isEqualTo(List.of(3, "center"));
+        assertThat(data.getString("holder.label")).isEqualTo(holder.label);
+        assertThat(data.getString("holder.active")).isEqualTo("true");
+        assertThat(data.getString("holder.unknown")).isEqualTo("null");
+        assertThat(data.getString(AccessibleData.VALUE_READ_MISSES)).contains("cannot resolve 'unknown'");
+        assertThat(data.getString("holder.broken")).isEqualTo("null");
+        assertThat(data.getString(AccessibleData.VALUE_READ_MISSES)).contains("cannot resolve 'broken'");
+    }
+
+    /**
+     * Record to read values from.
+     *
+     * @param x    some number
+     * @param name some text
+     */
+    record Point(int x, String name) {
+        // just data
+    }
+
+    /**
+     * Provides a public field, a boolean getter and a getter throwing a checked exception.
+     */
+    public static class FieldHolder {
+
+        /**
+         * Read directly.
+         */
+        public String label = "field";
+
+        /**
+         * @return constant value
+         */
+        public boolean isActive() {
+            return true;
+        }
+
+        /**
+         * @return never
+         * @throws IOException always, must be handled like a missing value
+         */
+        public String getBroken() throws IOException {
+            throw new IOException("cannot read");
+        }
+    }
+
     /**
      * Asserts that the size of collections can be obtained. Because all data is treated as String, the size
      * comes as String as well.
@@ -124,6 +204,27 @@ class TestAccessibleData {
         assertThat(systemUnderTest.getString("Name")).isEqualTo(oldValue);
     }
 
+    /**
+     * Names which occur only at runtime must not allocate a slot because slots are never freed. Values defined by
+     * such names can be read and undefined anyway.
+     */
+    @Test
+    void runtimeNamesWithoutSlot() {
+        String name = "runtimeDefined";
+        AccessibleData testee = AccessibleData.byBean(Map.of("which", "runtimeOnly", "what", name));
+        assertThat(testee.get("${which}")).isNull();
+        testee.define(name, "first");
+        testee.define(name, "second");
+        assertThat(testee.get("${what}")).isEqualTo("second");
+        testee.undefine(name);
+        assertThat(testee.getString("${what}")).isEqualTo("first");
+        testee.undefine(name);
+        testee.undefine(name);
+        assertThat(testee.get("${what}")).isNull();
+        assertThat(RenderContext.existingSlotOf("runtimeOnly")).isEqualTo(RenderContext.NO_SLOT);
+        assertThat(RenderContext.existingSlotOf(name)).isEqualTo(RenderContext.NO_SLOT);
+    }
+
     /**
      * Assert that getting attributes works with read-only objects.
      */
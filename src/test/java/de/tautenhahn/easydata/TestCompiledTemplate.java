@@ -0,0 +1,265 @@
+package de.tautenhahn.easydata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for templates which are parsed once and rendered several times.
+ *
+ * @author TT
+ */
+class TestCompiledTemplate extends DataIntoTemplateBase {
+
+    private static final CompiledTemplate.Engine[] ENGINES = {CompiledTemplate.Engine.INSTRUCTIONS,
+                                                              CompiledTemplate.Engine.GENERATED};
+
+    /**
+     * Renders one template with different data, macros defined in the template must be available each time.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void renderRepeatedly() throws IOException {
+        String template = "{@DEFINE hello(_who)}Hello {@=_who}!{@/DEFINE}{@hello Name} Hobbys: "
+                + "{@FOR hobby:Hobbys}{@=hobby}{@DELIM}, {@/FOR}";
+        CompiledTemplate systemUnderTest = CompiledTemplate.compile(new StringReader(template), '{', '@', '}');
+
+        assertThat(render(systemUnderTest, getData("/data.json")))
+                .isEqualTo("Hello Horst! Hobbys: Tanzen, Schlafen, Feuerschlucken\n");
+        AccessibleData other = AccessibleData.byJsonContent("{Name:\"Emil\", Hobbys:[\"Lesen\"]}");
+        assertThat(render(systemUnderTest, other)).isEqualTo("Hello Emil! Hobbys: Lesen\n");
+        assertThat(render(systemUnderTest, other)).isEqualTo("Hello Emil! Hobbys: Lesen\n");
+    }
+
+    /**
+     * Asserts that the result equals the result of directly expanding the template and replacements defined by
+     * the template do not survive the respective rendering.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void sameResultAsDirectExpansion() throws IOException {
+        String template = "{@DEFINE mac(_v)}[{@=_v}]{@/DEFINE}"
+                + "{@REPLACEMENT _X_}x{@/REPLACEMENT}{@=value} {@USE \"mac\" value}";
+        AccessibleData data = AccessibleData.byBean(Map.of("value", "a_X_b"));
+        CompiledTemplate systemUnderTest = CompiledTemplate.compile(new StringReader(template), '{', '@', '}');
+
+        String result = render(systemUnderTest, data);
+        assertThat(render(systemUnderTest, data)).isEqualTo(result).startsWith("axb [axb]");
+        assertThat(data.getString("value")).isEqualTo("a_X_b");
+        assertThat(doExpand(template, data, '{', '@', '}')).isEqualTo(result);
+    }
+
+    /**
+     * Asserts that values and replacements defined by the caller are used as when expanding the template
+     * directly and that the read misses of each rendering are returned. Formatters added later to the data do not
+     * change a copy made for rendering.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void definitionsOfCaller() throws IOException {
+        String template = "{@=greeting}, {@=Name}{@=Name.first}{@=_mark}";
+        AccessibleData data = AccessibleData.byBean(Map.of("Name", "Horst"));
+        RenderContext.slotOf("_mark");
+        data.define("_mark", "!");
+        data.define("greeting", "Hello");
+        data.defineReplacement("o", "0");
+        CompiledTemplate systemUnderTest = CompiledTemplate.compile(new StringReader(template), '{', '@', '}');
+
+        for (CompiledTemplate.Engine engine : CompiledTemplate.Engine.values()) {
+            systemUnderTest.setEngine(engine);
+            StringWriter output = new StringWriter();
+            assertThat(systemUnderTest.render(data, output))
+                    .containsExactly("cannot resolve 'first' because value of 'Name' is String");
+            assertThat(output).hasToString("Hell0, H0rstnull!\n");
+        }
+        assertThat(data.getString(AccessibleData.VALUE_READ_MISSES)).isEmpty();
+
+        AccessibleData copy = data.forRendering();
+        data.addFormatter((value, path) -> "formatted");
+        assertThat(copy.getString("greeting")).isEqualTo("Hell0");
+        assertThat(data.getString("greeting")).isEqualTo("f0rmatted");
+    }
+
+    /**
+     * Renders one template with one data object in many threads at once. Each result must be the same as if
+     * rendered alone, especially values defined by SET, FOR, macro parameters and recorded read misses must not
+     * leak between the threads.
+     *
+     * @throws Exception to appear in test protocol
+     */
+    @Test
+    void renderConcurrently() throws Exception {
+        String template = "{@DEFINE line(_f, _n)}{@SET last=_f.city}{@=_n}:{@=_f.city}"
+                + "{@IF _f.distance}/{@=VALUE}{@/IF}{@/DEFINE}{@REPLACEMENT Berlin}BER{@/REPLACEMENT}"
+                + "{@FOR name:friends.keys}{@line friends[name] name}{@DELIM}, {@/FOR} {@=last}"
+                + " {@=noSuchValue.attr} {@=VALUE_READ_MISSES}";
+        AccessibleData data = getData("/data.json");
+        CompiledTemplate systemUnderTest = CompiledTemplate.compile(new StringReader(template), '{', '@', '}');
+        String expected = render(systemUnderTest, data);
+        assertThat(expected).startsWith("Emil:Gera/90, Oskar:Rom/400, Heinz:BER/120, Franz:BER/120 BER null [cannot resolve 'attr'");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8); // NOPMD concurrency is what we test
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    List<String> documents = new ArrayList<>();
+                    for (int j = 0; j < 200; j++) {
+                        documents.add(render(systemUnderTest, data));
+                    }
+                    return documents;
+                }));
+            }
+            for (Future<List<String>> result : results) {
+                assertThat(result.get()).hasSize(200).containsOnly(expected);
+            }
+        } finally {
+            executor.shutdown(); // NOPMD see above
+        }
+        assertThat(data.getString(AccessibleData.VALUE_READ_MISSES)).isEmpty();
+    }
+
+    /**
+     * Asserts that executing the template as flat instruction list or as generated class yields the same output and
+     * the same error locations as resolving the tags.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void enginesGiveSameResult() throws IOException {
+        AccessibleData data = getData("/data.json");
+        String[] templates = {"{@DEFINE line(_f, _n)}{@SET last=_f.city}{@=_n}:{@=_f.city}"
+                + "{@IF _f.distance}/{@=VALUE}{@ELSE}-{@/IF}{@/DEFINE}{@REPLACEMENT Berlin}BER{@/REPLACEMENT}"
+                + "{@FOR name:friends.keys ASCENDING}{@line friends[name] name}{@DELIM}, {@/FOR} {@=last}",
+                "{@MARKUP_ONLY}\n {@FOR ho:Hobbys}\n{@FOR hi:Hobbys UNIQUE}{@IF ho == hi}{@=hi}{@/IF}{@/FOR}{@/FOR}\n"
+                        + "{@/MARKUP_ONLY}{@FOR x:noSuchList}never{@/FOR}{@INDENT}a\nb{@VALUE}  {@/INDENT}",
+                "{@DEFINE m(_x)}{@=_x}{@/DEFINE}{@USE \"m\" Name} {@IF Name == \"Horst\"}yes{@/IF}{@SKIP}{@=hidden}"};
+        for (String template : templates) {
+            CompiledTemplate systemUnderTest = CompiledTemplate.compile(new StringReader(template), '{', '@', '}');
+            String expected = render(systemUnderTest, data);
+            for (CompiledTemplate.Engine engine : ENGINES) {
+                systemUnderTest.setEngine(engine);
+                assertThat(systemUnderTest.getEngine()).isEqualTo(engine);
+                assertThat(render(systemUnderTest, data)).isEqualTo(expected);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                systemUnderTest.render(data, bytes);
+                assertThat(bytes.toString(StandardCharsets.UTF_8)).isEqualTo(expected);
+            }
+        }
+
+        String failing = "{@DEFINE m(_x)}{@FOR y:_x}{@IF y}{@=y.a.b}{@/IF}{@/FOR}{@/DEFINE}{@m Hobbys}";
+        data.setThrowOnValueReadMiss(true);
+        CompiledTemplate systemUnderTest = CompiledTemplate.compile(new StringReader(failing), '{', '@', '}');
+        String expected = catchThrowable(() -> render(systemUnderTest, data)).getMessage();
+        assertThat(expected).contains("{@=y.a.b}", "{@IF y}", "{@FOR y:_x}", "{@m Hobbys}");
+        for (CompiledTemplate.Engine engine : ENGINES) {
+            systemUnderTest.setEngine(engine);
+            assertThatThrownBy(() -> render(systemUnderTest, data)).hasMessage(expected);
+        }
+    }
+
+    /**
+     * Asserts that a subclass overriding {@link AccessibleData#getString(String)} changes the inserted values with
+     * each engine, as it does when expanding the template directly.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void overriddenGetString() throws IOException {
+        String template = "{@=Name} {@FOR hobby:Hobbys}{@=hobby}{@DELIM}, {@/FOR}";
+        AccessibleData data = new UpperCaseData(AccessibleData.byJsonContent("{Name:\"Emil\", Hobbys:[\"Lesen\"]}"));
+        CompiledTemplate systemUnderTest = CompiledTemplate.compile(new StringReader(template), '{', '@', '}');
+
+        assertThat(doExpand(template, data, '{', '@', '}')).isEqualTo("EMIL LESEN\n");
+        assertThat(render(systemUnderTest, data)).isEqualTo("EMIL LESEN\n");
+        for (CompiledTemplate.Engine engine : ENGINES) {
+            systemUnderTest.setEngine(engine);
+            assertThat(render(systemUnderTest, data)).isEqualTo("EMIL LESEN\n");
+        }
+    }
+
+    /**
+     * Data as an application would extend it before templates took pre-parsed expressions.
+     */
+    private static final class UpperCaseData extends AccessibleData {
+
+        UpperCaseData(AccessibleData original) {
+            super(original);
+        }
+
+        @Override
+        public String getString(String attrName) {
+            return super.getString(attrName).toUpperCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Without Java compiler, as in a runtime without JDK tools, no class is generated and the resolvers are used.
+     */
+    @Test
+    void noJavaCompiler() {
+        assertThat(TemplateCompiler.compile(Map.of(), null)).isEmpty();
+    }
+
+    /**
+     * Asserts that classes not loaded from the file system, for instance from a nested jar, make the generated
+     * engine fall back to the resolvers instead of failing.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void classesNotInFileSystem() throws IOException {
+        URL nested = URI.create("jar:file:/app.jar!/BOOT-INF/lib/easydata.jar!/").toURL();
+        assertThat(TemplateCompiler.classPathOf(new CodeSource(nested, (Certificate[]) null))).isEmpty();
+        assertThat(TemplateCompiler.classPathOf(null)).isEmpty();
+        URL directory = Path.of("build").toUri().toURL();
+        assertThat(TemplateCompiler.classPathOf(new CodeSource(directory, (Certificate[]) null)))
+                .contains(Path.of("build").toAbsolutePath().toString());
+    }
+
+    /**
+     * Asserts that the paths read by a template are found with defined names replaced by the paths of their
+     * values and that paths computed while rendering are reported as unknown.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void referencedPaths() throws IOException {
+        String template = "{@DEFINE line(_f, _n)}{@=_n}:{@=_f.city}{@IF _f.distance}/{@=VALUE}{@/IF}{@/DEFINE}"
+                + "{@=Address.City} {@FOR fr:friends.values DESCENDING distance}{@line fr Name}{@DELIM}, {@/FOR}"
+                + "{@FOR ho:Hobbys}-{@/FOR}{@IF children}{@=SIZE(children)}{@/IF}{@SET first=Hobbys.0}";
+        CompiledTemplate systemUnderTest = CompiledTemplate.compile(new StringReader(template), '{', '@', '}');
+        assertThat(systemUnderTest.getReferencedPaths().orElseThrow())
+                .containsExactly("Address.City", "Hobbys.*", "Hobbys.0", "Name", "VALUE", "children", "friends.*.city",
+                                 "friends.*.distance");
+
+        String[] dynamic = {"{@=friends.${Name}.city}", "{@DEFINE m(_x)}{@=_x}{@/DEFINE}{@USE \"m\" Name}"};
+        for (String other : dynamic) {
+            assertThat(CompiledTemplate.compile(new StringReader(other), '{', '@', '}').getReferencedPaths()).isEmpty();
+        }
+    }
+}
@@ -4,6 +4,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -103,4 +109,41 @@ class TestDataIntoTemplateSpecialCases extends DataIntoTemplateBase {
     private String doExpand(String template) throws IOException {
         return doExpand(template, exampleData, '[', '@', ']');
     }
+
+    /**
+     * Factories implementing only the methods existing before tag types with own resolvers per occurrence must still
+     * support registering such tag types.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void registerWithOlderFactory() throws IOException {
+        Map<Pattern, Resolver> registered = new HashMap<>();
+        ResolverFactory systemUnderTest = new ResolverFactory() {
+
+            @Override
+            public Resolver getResolver(Token startToken, Iterator<Token> remaining) {
+                return registered.values().iterator().next();
+            }
+
+            @Override
+            public void register(Pattern pattern, Resolver value) {
+                registered.put(pattern, value);
+            }
+
+            @Override
+            public String nameToTag(String name) {
+                return "[@" + name + "]";
+            }
+        };
+        systemUnderTest.register(Pattern.compile("HELLO (\\w+)"),
+                                 m -> (start, data, output) -> output.write("Hello " + m.group(1)));
+        StringWriter result = new StringWriter();
+        Token tag = new Token("[@ HELLO World]", 1, 1);
+        systemUnderTest.getResolver(tag, Collections.emptyIterator()).resolve(tag, exampleData, result);
+        assertThat(result).hasToString("Hello World");
+        Token other = new Token("[@GOODBYE]", 1, 1);
+        assertThatThrownBy(() -> systemUnderTest.getResolver(other, Collections.emptyIterator())
+                .resolve(other, exampleData, result)).isInstanceOf(IllegalArgumentException.class);
+    }
 }
@@ -0,0 +1,82 @@
+package de.tautenhahn.easydata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for pre-parsed value expressions.
+ *
+ * @author TT
+ */
+class TestExpression extends DataIntoTemplateBase {
+
+    private static AccessibleData data;
+
+    /**
+     * Provides some data to evaluate expressions with.
+     *
+     * @throws IOException in case of streaming problems
+     */
+    @BeforeAll
+    static void provideData() throws IOException {
+        data = getData("/data.json");
+    }
+
+    /**
+     * Asserts that literals are recognized without looking into the data.
+     */
+    @Test
+    void literals() {
+        assertThat(Expression.parse("NULL").evaluate(data)).isNull();
+        assertThat(Expression.parse("TRUE").evaluate(data)).isEqualTo(Boolean.TRUE);
+        assertThat(Expression.parse("false").evaluate(data)).isEqualTo(Boolean.FALSE);
+        assertThat(Expression.parse("42").evaluate(data)).isEqualTo(42);
+        assertThat(Expression.parse("#Name#").evaluate(data)).isEqualTo("Name");
+    }
+
+    /**
+     * Asserts that one parsed expression can be evaluated with different defined values.
+     */
+    @Test
+    void dereference() {
+        Expression systemUnderTest = Expression.parse("friends.${name}.city");
+        Expression brackets = Expression.parse("friends[name].city");
+        data.define("name", "Emil");
+        assertThat(systemUnderTest.evaluate(data)).isEqualTo("Gera");
+        assertThat(brackets.evaluate(data)).isEqualTo("Gera");
+        data.define("name", "Oskar");
+        assertThat(systemUnderTest.evaluate(data)).isEqualTo("Rom");
+        assertThat(brackets.evaluate(data)).isEqualTo("Rom");
+        data.undefine("name");
+        data.undefine("name");
+        assertThat(systemUnderTest).hasToString("friends.${name}.city");
+    }
+
+    /**
+     * Asserts that inner expressions may be nested and combined with other text inside one attribute name.
+     */
+    @Test
+    void nestedDereference() {
+        data.define("which", "idx");
+        data.define("idx", "1");
+        assertThat(Expression.parse("Hobbys.${${which}}").evaluate(data)).isEqualTo("Schlafen");
+        assertThat(Expression.parse("Hobbys[${which}]").evaluate(data)).isEqualTo("Schlafen");
+        assertThat(Expression.parse("${which}x").evaluate(data)).isNull();
+        data.undefine("which");
+        data.undefine("idx");
+    }
+
+    /**
+     * Asserts that the size function works on arbitrary inner expressions.
+     */
+    @Test
+    void size() {
+        assertThat(Expression.parse("SIZE(friends)").evaluate(data)).isEqualTo(4);
+        assertThat(Expression.parse("SIZE{Hobbys}").evaluate(data)).isEqualTo(3);
+    }
+}
@@ -2,6 +2,11 @@ package de.tautenhahn.easydata;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 
 import org.junit.jupiter.api.Test;
@@ -33,6 +38,96 @@ class TestForTag
     assertThat(m.group(ForTag.GROUP_UNIQUE)).isNotEmpty();
   }
 
+  /**
+   * Asserts that sorting in parts written to temporary files gives the same result as sorting in memory,
+   * including skipping repeated elements.
+   *
+   * @throws IOException to appear in test protocol
+   */
+  @Test
+  void sortInBoundedMemory() throws IOException
+  {
+    StringBuilder json = new StringBuilder("{rows: [");
+    for ( int i = 0 ; i < 100 ; i++ )
+    {
+      int id = i % 30;
+      json.append(i == 0 ? "" : ", ")
+          .append("{id: ").append(id)
+          .append(", group: \"g").append(id % 7)
+          .append("\", value: ").append(id * 37 % 11).append('}');
+    }
+    AccessibleData data = AccessibleData.byJsonContent(json.append("]}").toString());
+    String[] templates = {"{@FOR rec:rows ASCENDING value}{@=rec.id},{@/FOR}",
+                          "{@FOR rec:rows DESCENDING group}{@=rec.id},{@/FOR}",
+                          "{@FOR rec:rows UNIQUE ASCENDING group}{@=rec.id},{@/FOR}",
+                          "{@FOR grp:rows SELECT group UNIQUE ASCENDING}{@=grp},{@/FOR}",
+                          "{@FOR val:rows SELECT value UNIQUE DESCENDING}{@=val},{@/FOR}"};
+    for ( String template : templates )
+    {
+      CompiledTemplate compiled = CompiledTemplate.compile(new StringReader(template), '{', '@', '}');
+      data.setSortBufferSize(Integer.MAX_VALUE);
+      String expected = DataIntoTemplateBase.render(compiled, data);
+      data.setSortBufferSize(7);
+      assertThat(DataIntoTemplateBase.render(compiled, data)).isEqualTo(expected).isNotEmpty();
+    }
+  }
+
+  /**
+   * Elements which would change when written to a file, like Integers or beans, must be sorted in memory, so the
+   * result does not depend on the buffer size. This holds as well if such elements follow spilled ones.
+   *
+   * @throws IOException to appear in test protocol
+   */
+  @Test
+  void sortBeansInBoundedMemory() throws IOException
+  {
+    List<Object> maps = new ArrayList<>();
+    List<Object> beans = new ArrayList<>();
+    List<Object> mixed = new ArrayList<>();
+    for ( int i = 0 ; i < 20 ; i++ )
+    {
+      int id = i * 7 % 20;
+      maps.add(Map.of("id", id));
+      beans.add(new IdBean(id));
+      mixed.add(i < 10 ? Map.of("id", Double.valueOf(id)) : Map.of("id", Double.valueOf(id), "count", i));
+    }
+    AccessibleData data = AccessibleData.byBean(Map.of("maps", maps, "beans", beans, "mixed", mixed));
+    for ( String name : List.of("maps", "beans", "mixed") )
+    {
+      CompiledTemplate compiled = CompiledTemplate.compile(new StringReader("{@FOR rec:" + name
+                                                                            + " ASCENDING id}{@=rec.id},{@/FOR}"),
+                                                           '{',
+                                                           '@',
+                                                           '}');
+      data.setSortBufferSize(Integer.MAX_VALUE);
+      String expected = DataIntoTemplateBase.render(compiled, data);
+      data.setSortBufferSize(3);
+      assertThat(DataIntoTemplateBase.render(compiled, data)).isEqualTo(expected).isNotEmpty();
+    }
+  }
+
+  /**
+   * Bean to sort.
+   */
+  public static final class IdBean
+  {
+
+    private final int id;
+
+    IdBean(int id)
+    {
+      this.id = id;
+    }
+
+    /**
+     * @return identifier
+     */
+    public int getId()
+    {
+      return id;
+    }
+  }
+
   private void checkValues(Matcher m,
                            String name,
                            String collection,
@@ -1,8 +1,13 @@
 package de.tautenhahn.easydata;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
@@ -101,4 +106,64 @@ class TestMacros extends DataIntoTemplateBase
     String result = doExpand(template, data, '{', '@', '}');
     assertThat(result).isEqualTo("Gera\n");
   }
+
+  /**
+   * Macro names may start like built-in keywords or contain regex characters. Re-defining a macro replaces the
+   * former definition.
+   *
+   * @throws IOException to appear in test protocol
+   */
+  @Test
+  void macroNamesResembleKeywords() throws IOException
+  {
+    AccessibleData data = AccessibleData.byBean(Map.of("Name", "Horst", "friends", friends()));
+    String template = "{@DEFINE FORMAT(_x)}[{@=_x}]{@/DEFINE}{@DEFINE city.of(_f)}{@=_f.city}{@/DEFINE}"
+                      + "{@DEFINE IFfy}old{@/DEFINE}{@DEFINE IFfy}new{@/DEFINE}"
+                      + "{@FORMAT Name} {@city.of friends.Emil} {@IFfy} {@IF Name}{@=VALUE}{@/IF}";
+
+    String result = doExpand(template, data, '{', '@', '}');
+    assertThat(result).isEqualTo("[Horst] Gera new Horst\n");
+  }
+
+  /**
+   * Parameters and loop variables of the same name shadow each other, the outer value is restored afterwards.
+   *
+   * @throws IOException to appear in test protocol
+   */
+  @Test
+  void shadowedNames() throws IOException
+  {
+    AccessibleData data = AccessibleData.byBean(Map.of("friends", friends(), "Hobbys", List.of("Tanzen")));
+    String template = "{@DEFINE inner(_v)}<{@=_v}>{@/DEFINE}{@DEFINE outer(_v)}{@inner _v.city}{@=_v.distance}{@/DEFINE}"
+                      + "{@FOR _v:friends.keys}{@outer friends[_v]}{@FOR _v:Hobbys}{@/FOR}{@=_v};{@/FOR}";
+
+    String result = doExpand(template, data, '{', '@', '}');
+    assertThat(result).startsWith("<Gera>90Emil;<Rom>400Oskar;");
+  }
+
+  /**
+   * A macro can still be used as resolver of its own, parsing the parameters of each tag.
+   *
+   * @throws IOException to appear in test protocol
+   */
+  @Test
+  void macroAsResolver() throws IOException
+  {
+    Map<Token, Resolver> content = Map.of(new Token("{@=_who}", 1, 1),
+                                          (start, d, output) -> output.write("Hello " + d.getString("_who")));
+    Resolver systemUnderTest = new MacroTag("greet", List.of("_who"), content);
+    StringWriter result = new StringWriter();
+    systemUnderTest.resolve(new Token("{@greet Name}", 2, 1), AccessibleData.byBean(Map.of("Name", "Horst")), result);
+    assertThat(result).hasToString("Hello Horst");
+    assertThatThrownBy(() -> systemUnderTest.resolve(new Token("{@other}", 3, 1), null, result))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static Map<String, Object> friends()
+  {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("Emil", Map.of("city", "Gera", "distance", "90"));
+    result.put("Oskar", Map.of("city", "Rom", "distance", "400"));
+    return result;
+  }
 }
@@ -39,6 +39,10 @@ class TestMain
       Main.main(sourceDir.resolve("cv.json").toString(),
                 sourceDir.resolve("cv_template.tex").toString(),
                 Paths.get("build", "cv.tex").toString());
+      Main.main("-snapshot", sourceDir.resolve("cv.json").toString(), Paths.get("build", "cv.snapshot").toString());
+      Main.main(Paths.get("build", "cv.snapshot").toString(),
+                sourceDir.resolve("cv_template.tex").toString(),
+                Paths.get("build", "cv-from-snapshot.tex").toString());
     }
   }
 
@@ -13,6 +13,7 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -44,7 +45,7 @@ class TestPracticalUse
     }
     try (InputStream tiRes = TestPracticalUse.class.getResourceAsStream("/cv_template.tex");
          Reader template = new InputStreamReader(Objects.requireNonNull(tiRes), StandardCharsets.UTF_8);
-         OutputStream outRes = new FileOutputStream("cv.tex");
+         OutputStream outRes = new FileOutputStream(Paths.get("build", "cv.tex").toFile());
          Writer document = new OutputStreamWriter(outRes, StandardCharsets.UTF_8))
     {
       DataIntoTemplate systemUnderTest = new DataIntoTemplate(cv, '<', '@', '>');
@@ -1,9 +1,13 @@
 package de.tautenhahn.easydata;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
-import java.util.Scanner;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Test;
 
@@ -15,7 +19,8 @@ import org.junit.jupiter.api.Test;
  * <li>each special tag '[#some content]' is returned in a separate token</li>
  * <li>characters marking the special tag can be chosen freely</li>
  * <ul>
- * Handling of huge inputs should be done streaming. We assume the input is handled line by line.
+ * Handling of huge inputs should be done streaming. The input is read in chunks, tags may cross the chunk
+ * borders.
  *
  * @author TT
  */
@@ -31,26 +36,23 @@ class TestTokenizer
     String tag = "[#=Name]";
     boolean found = false;
     String source = "example [][][[" + tag + "[]]\n\n]\n";
-    try (Scanner sRes = new Scanner(source); Scanner inputRes = sRes.useDelimiter("\n"))
-    {
-      StringBuilder copy = new StringBuilder();
-      // Iterator is not Iterable!
-      for ( Tokenizer systemUnderTest = new Tokenizer(inputRes, '[', '#', ']') ; systemUnderTest.hasNext() ; ) // NOPMD
+    StringBuilder copy = new StringBuilder();
+    // Iterator is not Iterable!
+    for ( Tokenizer systemUnderTest = new Tokenizer(new StringReader(source), '[', '#', ']') ; systemUnderTest.hasNext() ; ) // NOPMD
 
+    {
+      Token token = systemUnderTest.next();
+      if (tag.equals(token.getContent()))
       {
-        Token token = systemUnderTest.next();
-        if (tag.equals(token.getContent()))
-        {
-          assertThat(token.getRow()).isEqualTo(1);
-          assertThat(token.getCol()).isEqualTo(14);
-          found = true;
-          assertThat(token.toString()).contains("  1: 14");
-        }
-        copy.append(token.getContent());
+        assertThat(token.getRow()).isEqualTo(1);
+        assertThat(token.getCol()).isEqualTo(14);
+        found = true;
+        assertThat(token.toString()).contains("  1: 14");
       }
-      assertThat(copy.toString()).isEqualTo(source);
-      assertThat(found).isTrue();
+      copy.append(token.getContent());
     }
+    assertThat(copy.toString()).isEqualTo(source);
+    assertThat(found).isTrue();
   }
 
   /**
@@ -61,43 +63,104 @@ class TestTokenizer
   {
     String tag = "{$= element.${i} }";
     String source = "i-th element is " + tag + ".\n";
-    try (Scanner sRes = new Scanner(source); Scanner inputRes = sRes.useDelimiter("\n"))
-    {
-      Tokenizer systemUnderTest = new Tokenizer(inputRes, '{', '$', '}');
-      systemUnderTest.next();
-      String content = systemUnderTest.next().getContent();
-      assertThat(content).isEqualTo(tag);
-    }
+    Tokenizer systemUnderTest = new Tokenizer(new StringReader(source), '{', '$', '}');
+    systemUnderTest.next();
+    String content = systemUnderTest.next().getContent();
+    assertThat(content).isEqualTo(tag);
   }
 
   /**
-   * Asserts that scanners delimiter is checked.
+   * Asserts that concatenation of tokens returns original content. A missing line break at the end is added.
    */
   @Test
-  void wrongScanner()
+  void retainOriginalContent()
   {
-    try (Scanner s = new Scanner("whatever"))
-    {
-      assertThatThrownBy(() -> new Tokenizer(s, '[', '#', ']')).isInstanceOf(IllegalArgumentException.class);
-    }
+    String source = "\nthis text \n has different line breaks \r\n and a special tag {$EOL}\n";
+    assertThat(String.join("", tokenize(source, '{', '$', '}', Tokenizer.DEFAULT_CHUNK_SIZE))).isEqualTo(source);
+    assertThat(String.join("", tokenize("no line break", '{', '$', '}', Tokenizer.DEFAULT_CHUNK_SIZE)))
+      .isEqualTo("no line break\n");
+    assertThat(tokenize("", '{', '$', '}', Tokenizer.DEFAULT_CHUNK_SIZE)).isEmpty();
   }
 
   /**
-   * Asserts that concatenation of tokens returns original content.
+   * Asserts that tags are found even if they span several chunks of input and that text tokens do not exceed
+   * the chunk size.
    */
   @Test
-  void retainOriginalContent()
+  void tagsCrossChunkBorders()
+  {
+    String tag = "{@FOR x:a.b.c.d.e.f ORDERED BY x DESCENDING}";
+    String source = "<w:p>" + tag + "<w:t>{ not a tag }</w:t>{@=x}{@/FOR}</w:p>\nsecond line {@=y}";
+    Tokenizer systemUnderTest = new Tokenizer(new StringReader(source), '{', '@', '}', 4);
+    List<Token> tokens = new ArrayList<>();
+    systemUnderTest.forEachRemaining(tokens::add);
+
+    assertThat(tokens).extracting(Token::getContent).contains(tag, "{@=x}", "{@/FOR}", "{@=y}");
+    assertThat(tokens).filteredOn(t -> !t.getContent().startsWith("{@"))
+      .allMatch(t -> t.getContent().length() <= 4);
+    Token last = tokens.get(tokens.size() - 2);
+    assertThat(last.getContent()).isEqualTo("{@=y}");
+    assertThat(last.getRow()).isEqualTo(2);
+    assertThat(last.getCol()).isEqualTo(12);
+  }
+
+  /**
+   * Asserts that the tokens are exactly the same as those found by the regular expression originally used,
+   * applied line by line. Random input with many markers covers the tricky cases of nested and unclosed pairs.
+   */
+  @Test
+  void sameTagsAsRegex()
   {
-    String source = "this text \n has different line breaks \r\n and a special tag {$EOL}\n";
-    try (Scanner sRes = new Scanner(source); Scanner inputRes = sRes.useDelimiter("\n"))
+    Pattern pattern = Pattern.compile("([^{]+)|(\\{@(([^{}]|(\\{[^@].*?\\}))*)\\})|(\\{)", Pattern.DOTALL);
+    Random random = new Random(42);
+    String alphabet = "{{{@}}}ab\n";
+    for ( int i = 0 ; i < 2000 ; i++ )
     {
-      Tokenizer systemUnderTest = new Tokenizer(inputRes, '{', '$', '}');
-      StringBuilder result = new StringBuilder();
-      while (systemUnderTest.hasNext())
+      StringBuilder source = new StringBuilder();
+      int length = random.nextInt(60);
+      for ( int j = 0 ; j < length ; j++ )
       {
-        result.append(systemUnderTest.next().getContent());
+        source.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      String text = source.length() == 0 || source.charAt(source.length() - 1) == '\n' ? source.toString()
+        : source + "\n";
+      List<String> expected = new ArrayList<>();
+      for ( String line : text.split("(?<=\n)") )
+      {
+        Matcher m = pattern.matcher(line);
+        while (m.find())
+        {
+          expected.add(m.group());
+        }
+      }
+      assertThat(joinTextParts(tokenize(source.toString(), '{', '@', '}', 3))).as(text).isEqualTo(expected);
+    }
+  }
+
+  private static List<String> joinTextParts(List<String> tokens)
+  {
+    List<String> result = new ArrayList<>();
+    for ( String token : tokens )
+    {
+      int last = result.size() - 1;
+      if (last >= 0 && !token.startsWith("{") && !result.get(last).startsWith("{")
+          && !result.get(last).endsWith("\n"))
+      {
+        result.set(last, result.get(last) + token);
+      }
+      else
+      {
+        result.add(token);
       }
-      assertThat(result.toString()).isEqualTo(source);
     }
+    return result;
+  }
+
+  private static List<String> tokenize(String source, char opening, char marker, char closing, int chunkSize)
+  {
+    List<String> result = new ArrayList<>();
+    new Tokenizer(new StringReader(source), opening, marker, closing, chunkSize)
+      .forEachRemaining(t -> result.add(t.getContent()));
+    return result;
   }
 }
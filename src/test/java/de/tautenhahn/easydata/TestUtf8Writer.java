@@ -0,0 +1,64 @@
+package de.tautenhahn.easydata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for the UTF-8 writer.
+ *
+ * @author TT
+ */
+class TestUtf8Writer {
+
+    private static final String SAMPLE = "Grüße, € and 😀!";
+
+    /**
+     * Asserts that surrogate pairs split between calls are joined and that pre-encoded text is inserted.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void writeParts() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Utf8Writer systemUnderTest = new Utf8Writer(bytes)) {
+            systemUnderTest.write(SAMPLE, 0, 14);
+            systemUnderTest.write(SAMPLE.toCharArray(), 14, SAMPLE.length() - 14);
+            systemUnderTest.writeEncoded("[ä]".getBytes(StandardCharsets.UTF_8));
+            systemUnderTest.write('\uDE00');
+            systemUnderTest.write("\uD83Dx");
+        }
+        assertThat(bytes.toString(StandardCharsets.UTF_8)).isEqualTo(SAMPLE + "[ä]??x");
+    }
+
+    /**
+     * Asserts that arbitrary characters, including unpaired surrogates, are encoded as by the JDK encoder.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void encodeLikeOutputStreamWriter() throws IOException {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 20_000) {
+            text.append((char) random.nextInt(Character.MAX_VALUE + 1));
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(expected, StandardCharsets.UTF_8)) {
+            writer.append(text);
+        }
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (Writer writer = new Utf8Writer(actual)) {
+            writer.append(text);
+        }
+        assertThat(actual.toByteArray()).isEqualTo(expected.toByteArray());
+    }
+}
@@ -1,8 +1,19 @@
 package de.tautenhahn.easydata.docx;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import javax.imageio.ImageIO;
 
@@ -67,6 +78,115 @@ class TestDocxAdapter extends DataIntoTemplateBase
     }
   }
 
+  /**
+   * Entries other than the text content must be copied with their compressed content. The result must be a
+   * valid ZIP file.
+   *
+   * @throws IOException to appear in test protocol
+   */
+  @Test
+  void copyUnchangedEntries() throws IOException
+  {
+    Path result = Paths.get("build", "example_raw.docx");
+    try (InputStream source = getRes("/example.docx");
+      OutputStream destination = new FileOutputStream(result.toFile()))
+    {
+      new DocxAdapter(getData("/data.json")).convert(source, destination);
+    }
+    Map<String, byte[]> original;
+    Map<String, byte[]> converted;
+    try (InputStream source = getRes("/example.docx");
+      InputStream target = new FileInputStream(result.toFile()))
+    {
+      original = readRaw(source);
+      converted = readRaw(target);
+    }
+    assertThat(converted).containsOnlyKeys(original.keySet());
+    original.keySet()
+            .stream()
+            .filter(name -> !"word/document.xml".equals(name))
+            .forEach(name -> assertThat(converted.get(name)).isEqualTo(original.get(name)));
+
+    try (ZipFile zip = new ZipFile(result.toFile()))
+    {
+      try (InputStream content = zip.getInputStream(zip.getEntry("word/document.xml")))
+      {
+        assertThat(new String(content.readAllBytes(), StandardCharsets.UTF_8)).doesNotContain("(@");
+      }
+      for ( ZipEntry entry : Collections.list(zip.entries()) )
+      {
+        try (InputStream content = zip.getInputStream(entry))
+        {
+          assertThat(content.readAllBytes()).hasSize((int)entry.getSize());
+        }
+      }
+    }
+  }
+
+  /**
+   * Special tags split into several runs are collected while the document is created.
+   *
+   * @throws IOException to appear in test protocol
+   */
+  @Test
+  void defragmentOnTheFly() throws IOException
+  {
+    String document = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                      + "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\">"
+                      + "<w:body><w:p><w:r><w:t>Hello (@</w:t></w:r><w:r><w:rPr><w:b/></w:rPr><w:t>=na</w:t></w:r>"
+                      + "<w:r><w:t>me)!</w:t></w:r></w:p></w:body></w:document>";
+    ByteArrayOutputStream template = new ByteArrayOutputStream();
+    try (ZipOutputStream out = new ZipOutputStream(template))
+    {
+      out.putNextEntry(new ZipEntry("word/document.xml"));
+      out.write(document.getBytes(StandardCharsets.UTF_8));
+    }
+    DocxAdapter systemUnderTest = new DocxAdapter(AccessibleData.byJsonContent("{name:\"Erwin\"}"));
+    systemUnderTest.setDefragmenting(true);
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    systemUnderTest.convert(new ByteArrayInputStream(template.toByteArray()), result);
+
+    try (ZipInputStream ins = new ZipInputStream(new ByteArrayInputStream(result.toByteArray())))
+    {
+      assertThat(ins.getNextEntry().getName()).isEqualTo("word/document.xml");
+      assertThat(new String(ins.readAllBytes(), StandardCharsets.UTF_8)).contains(">Hello Erwin</w:t>")
+                                                                         .endsWith(">!</w:t></w:r></w:p></w:body></w:document>\n");
+    }
+  }
+
+  /**
+   * An empty ZIP file consists of the end record only, there is no entry to copy.
+   *
+   * @throws IOException to appear in test protocol
+   */
+  @Test
+  void emptyZip() throws IOException
+  {
+    ByteArrayOutputStream template = new ByteArrayOutputStream();
+    new ZipOutputStream(template).close();
+    assertThat(template.size()).isEqualTo(22);
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    new DocxAdapter(AccessibleData.byJsonContent("{}")).convert(new ByteArrayInputStream(template.toByteArray()),
+                                                               result);
+    try (ZipInputStream ins = new ZipInputStream(new ByteArrayInputStream(result.toByteArray())))
+    {
+      assertThat(ins.getNextEntry()).isNull();
+    }
+  }
+
+  private Map<String, byte[]> readRaw(InputStream ins) throws IOException
+  {
+    Map<String, byte[]> result = new HashMap<>();
+    try (RawZipReader reader = new RawZipReader(ins, Integer.MAX_VALUE))
+    {
+      for ( RawZipEntry entry = reader.next() ; entry != null ; entry = reader.next() )
+      {
+        result.put(entry.name(), reader.openRaw().readAllBytes());
+      }
+    }
+    return result;
+  }
+
   private int getCX(String path, int cy) throws IOException
   {
     try (InputStream res = getRes(path))
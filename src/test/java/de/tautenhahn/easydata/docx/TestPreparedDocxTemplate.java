@@ -0,0 +1,112 @@
+package de.tautenhahn.easydata.docx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import de.tautenhahn.easydata.AccessibleData;
+import de.tautenhahn.easydata.DataIntoTemplateBase;
+
+
+/**
+ * Unit tests for creating many documents from one DOCX template.
+ *
+ * @author TT
+ */
+class TestPreparedDocxTemplate extends DataIntoTemplateBase {
+
+    /**
+     * Each rendered document must have the same content as created by {@link DocxAdapter}.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void sameAsAdapter() throws IOException {
+        AccessibleData data = getData("/data.json");
+        PreparedDocxTemplate systemUnderTest;
+        try (InputStream source = getRes("/example.docx")) {
+            systemUnderTest = PreparedDocxTemplate.prepare(source);
+        }
+        Map<String, String> expected = contents(convert(new DocxAdapter(data), "/example.docx"));
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            systemUnderTest.render(data, result);
+            assertThat(contents(result.toByteArray())).isEqualTo(expected);
+        }
+    }
+
+    /**
+     * Images can be added to each document.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void embedImages() throws IOException {
+        MediaProvider media = new MediaProvider();
+        String id = media.addImage("Mustermann.png", () -> getRes("/Mustermann.png"));
+        AccessibleData data = AccessibleData.byJsonContent("{images: [{name:\"Erwin\", id:\"" + id
+                                                           + "\", cx:\"1000\"}]}");
+        PreparedDocxTemplate systemUnderTest;
+        try (InputStream source = getRes("/images.docx")) {
+            systemUnderTest = PreparedDocxTemplate.prepare(source);
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        systemUnderTest.render(data, media, result);
+        Map<String, String> contents = contents(result.toByteArray());
+        assertThat(contents).isEqualTo(contents(convert(new DocxAdapter(data, media), "/images.docx")));
+        assertThat(contents).containsKey("word/media/Mustermann.png");
+        assertThat(contents.get("word/_rels/document.xml.rels")).contains(id);
+    }
+
+    /**
+     * A ZIP file without text content is no DOCX template.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void missingDocument() throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("word/styles.xml"));
+            out.write("<styles/>".getBytes(StandardCharsets.UTF_8));
+        }
+        assertThatThrownBy(() -> PreparedDocxTemplate.prepare(new ByteArrayInputStream(zip.toByteArray())))
+            .isInstanceOf(ZipException.class)
+            .hasMessageContaining("word/document.xml");
+    }
+
+    private byte[] convert(DocxAdapter adapter, String template) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream source = getRes(template)) {
+            adapter.convert(source, result);
+        }
+        return result.toByteArray();
+    }
+
+    private static Map<String, String> contents(byte[] docx) throws IOException {
+        Map<String, String> result = new LinkedHashMap<>();
+        try (ZipInputStream ins = new ZipInputStream(new ByteArrayInputStream(docx))) {
+            for (ZipEntry entry = ins.getNextEntry(); entry != null; entry = ins.getNextEntry()) {
+                result.put(entry.getName(), new String(ins.readAllBytes(), StandardCharsets.ISO_8859_1));
+            }
+        }
+        return result;
+    }
+
+    private InputStream getRes(String path) {
+        return TestPreparedDocxTemplate.class.getResourceAsStream(path);
+    }
+}
@@ -0,0 +1,156 @@
+package de.tautenhahn.easydata.docx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit tests for avoiding special tags being distributed over several XML nodes without loading the whole
+ * document.
+ *
+ * @author TT
+ */
+class TestStreamingDocxDefragmenter {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                                         + "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\">"
+                                         + "<w:body>";
+
+    private static final String FOOTER = "</w:body></w:document>";
+
+    private static final Pattern TEXT_NODE = Pattern.compile("<w:t[ >][^<]*</w:t>|<w:t/>");
+
+    private StreamingDocxDefragmenter systemUnderTest;
+
+    @BeforeEach
+    void createInstance() {
+        systemUnderTest = new StreamingDocxDefragmenter();
+    }
+
+    /**
+     * Text should be moved between text nodes to make each special tag appear in one single node.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void change3Runs() throws IOException {
+        String result = reorganize("<w:p><w:r><w:t>beginning (@</w:t></w:r><w:r><w:rPr><w:b/></w:rPr><w:t>=</w:t></w:r>"
+                                   + "<w:r><w:t xml:space=\"preserve\">x.y) further Text</w:t></w:r></w:p>");
+        assertThat(systemUnderTest.changes).isEqualTo(2);
+        assertThat(result).startsWith(HEADER).contains("<w:t xml:space=\"preserve\">beginning (@=x.y)</w:t>")
+                          .contains("<w:rPr><w:b></w:b></w:rPr>");
+        assertThat(texts(result)).isEqualTo("beginning (@=x.y) further Text");
+    }
+
+    /**
+     * Headers and footers are reorganized like the text content, other parts are copied unchanged.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void changeHeaderPart() throws IOException {
+        String split = "<w:p><w:r><w:t>page (@</w:t></w:r><w:r><w:t>=no)</w:t></w:r></w:p>";
+        String header = HEADER.replace("w:document", "w:hdr").replace("<w:body>", "") + split + "</w:hdr>";
+        ByteArrayOutputStream docx = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(docx)) {
+            addEntry(zip, "word/document.xml", HEADER + FOOTER);
+            addEntry(zip, "word/header1.xml", header);
+            addEntry(zip, "word/styles.xml", header);
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        systemUnderTest.reorganize(new ByteArrayInputStream(docx.toByteArray()), result);
+
+        assertThat(systemUnderTest.changes).isEqualTo(1);
+        Map<String, String> parts = new HashMap<>();
+        try (ZipInputStream ins = new ZipInputStream(new ByteArrayInputStream(result.toByteArray()))) {
+            for (ZipEntry entry = ins.getNextEntry(); entry != null; entry = ins.getNextEntry()) {
+                parts.put(entry.getName(), new String(ins.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(parts.get("word/header1.xml")).contains("<w:t xml:space=\"preserve\">page (@=no)</w:t>");
+        assertThat(texts(parts.get("word/header1.xml"))).isEqualTo("page (@=no)");
+        assertThat(parts.get("word/styles.xml")).isEqualTo(header);
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    /**
+     * Tags must not be collected over paragraph borders, text which does not start a tag stays where it is.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void keepOtherContent() throws IOException {
+        String original = HEADER + "<w:p><w:r><w:t>see (@</w:t></w:r></w:p><w:p><w:r><w:t>=x)</w:t></w:r>"
+                          + "<w:r><w:t>(a</w:t></w:r><w:r><w:t>b)</w:t></w:r><w:r><w:t>5 &lt; 6</w:t></w:r></w:p>"
+                          + FOOTER;
+        String result = reorganize(original.substring(HEADER.length(), original.length() - FOOTER.length()));
+        assertThat(systemUnderTest.changes).isZero();
+        assertThat(result).isEqualTo(original);
+    }
+
+    /**
+     * Document without any fragmented special tags should not be changed.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void noUnnecessaryChange() throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream source = TestStreamingDocxDefragmenter.class.getResourceAsStream("/example.docx")) {
+            systemUnderTest.reorganize(source, result);
+        }
+        assertThat(systemUnderTest.changes).isZero();
+        try (ZipInputStream ins = new ZipInputStream(new ByteArrayInputStream(result.toByteArray()))) {
+            for (ZipEntry entry = ins.getNextEntry(); entry != null; entry = ins.getNextEntry()) {
+                if ("word/document.xml".equals(entry.getName())) {
+                    assertThat(new String(ins.readAllBytes(), StandardCharsets.UTF_8)).contains("(@=");
+                    return;
+                }
+            }
+        }
+        throw new AssertionError("text content missing");
+    }
+
+    private String reorganize(String paragraphs) throws IOException {
+        byte[] xml = (HEADER + paragraphs + FOOTER).getBytes(StandardCharsets.UTF_8);
+        try (Reader reader = systemUnderTest.reorganizePart(new ByteArrayInputStream(xml))) {
+            StringBuilder result = new StringBuilder();
+            char[] buf = new char[16];
+            for (int read = reader.read(buf); read > -1; read = reader.read(buf)) {
+                result.append(buf, 0, read);
+            }
+            return result.toString();
+        }
+    }
+
+    private static String texts(String xml) {
+        StringBuilder result = new StringBuilder();
+        Matcher m = TEXT_NODE.matcher(xml);
+        while (m.find()) {
+            String node = m.group();
+            result.append(node.endsWith("/>") ? "" : node.substring(node.indexOf('>') + 1, node.lastIndexOf('<')));
+        }
+        return result.toString();
+    }
+}
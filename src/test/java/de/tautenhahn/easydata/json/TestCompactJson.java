@@ -0,0 +1,130 @@
+package de.tautenhahn.easydata.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonSyntaxException;
+
+import de.tautenhahn.easydata.AccessibleData;
+import de.tautenhahn.easydata.DataIntoTemplateBase;
+
+
+/**
+ * Unit tests for reading JSON into compact maps.
+ *
+ * @author TT
+ */
+class TestCompactJson extends DataIntoTemplateBase {
+
+    private static final String JSON = """
+            {"title": "Records", "records": [{"id": 1, "name": "a", "tags": ["x"], "extra": null},
+             {"id": 2, "name": "b", "tags": [], "extra": {"deep": true}}, {"name": "c", "id": 3}, {}],
+             unquoted: 17}
+            """;
+
+    /**
+     * Asserts that the maps equal the data read by Gson and templates produce the same output.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void sameAsGson() throws IOException {
+        Map<String, Object> systemUnderTest = CompactJson.load(new StringReader(JSON));
+        Object expected = AccessibleData.byJsonContent(JSON).getData();
+        assertThat(systemUnderTest).isEqualTo(expected).hasSameHashCodeAs(expected);
+        assertThat(systemUnderTest.keySet()).containsExactly("title", "records", "unquoted");
+
+        List<?> records = (List<?>) systemUnderTest.get("records");
+        Map<?, ?> first = (Map<?, ?>) records.get(0);
+        assertThat(first.containsKey("extra")).isTrue();
+        assertThat(first.containsKey("other")).isFalse();
+        assertThat(first.get(42)).isNull();
+        assertThat(((Map<?, ?>) records.get(1)).keySet().iterator().next()).isSameAs(first.keySet().iterator().next());
+
+        String template = "{@=title}: {@FOR rec:records}{@=rec.name}/{@=rec.id}/{@=rec.extra.deep} {@/FOR}"
+                + "{@FOR key:records.2.keys}{@=key}{@/FOR} {@=unquoted}";
+        assertThat(doExpand(template, AccessibleData.byBean(systemUnderTest), '{', '@', '}'))
+                .isEqualTo(doExpand(template, AccessibleData.byJsonContent(JSON), '{', '@', '}'));
+    }
+
+    /**
+     * Asserts that arrays of records with the same members are stored by columns and behave like Gson's lists
+     * when selecting and sorting.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void columnarRecords() throws IOException {
+        String json = "{rows: [{num: 3, str: \"c\", obj: 1}, {num: 1, str: \"a\", obj: \"x\"},"
+                + " {num: 3, str: \"b\", obj: null}, {num: 2, str: null, obj: true}], mixed: [{num: 1}, {str: 1}]}";
+        Map<String, Object> data = CompactJson.load(new StringReader(json));
+        assertThat(data.get("rows")).isInstanceOf(RecordTable.class);
+        assertThat(data.get("mixed")).isNotInstanceOf(RecordTable.class);
+        RecordTable rows = (RecordTable) data.get("rows");
+        assertThat(rows.column("num")).contains(List.of(3.0, 1.0, 3.0, 2.0));
+        assertThat(rows.column("str", "length")).isEmpty();
+        assertThat(rows.sortedBy(new String[] {"str"}, true)).isEmpty();
+        assertThat(rows.sortedBy(new String[] {"num"}, false).orElseThrow()).extracting(r -> (Object) ((Map<?, ?>) r).get("str"))
+                .containsExactly("c", "b", null, "a");
+
+        String template = "{@FOR val:rows SELECT str}{@=val} {@/FOR}{@FOR val:rows SELECT num ASCENDING}{@=val} "
+                + "{@/FOR}{@FOR rec:rows DESCENDING num}{@=rec.str} {@/FOR}{@FOR rec:rows ASCENDING num}{@=rec.obj} "
+                + "{@/FOR}{@FOR val:rows SELECT num UNIQUE}{@=val} {@/FOR}";
+        assertThat(doExpand(template, AccessibleData.byBean(data), '{', '@', '}'))
+                .isEqualTo(doExpand(template, AccessibleData.byJsonContent(json), '{', '@', '}'));
+    }
+
+    /**
+     * Asserts that objects with many members and objects with many different member names are read into plain maps
+     * instead of growing the shapes without bound.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void dictionaries() throws IOException {
+        String json = dictionaryJson();
+        Map<String, Object> systemUnderTest = CompactJson.load(new StringReader(json));
+        assertThat(systemUnderTest).isEqualTo(AccessibleData.byJsonContent(json).getData());
+        assertThat(systemUnderTest.get("dictionary")).isNotInstanceOf(ShapedMap.class);
+        List<?> records = (List<?>) systemUnderTest.get("records");
+        assertThat(records.get(0)).isInstanceOf(ShapedMap.class);
+        assertThat(records.get(records.size() - 1)).isNotInstanceOf(ShapedMap.class);
+        assertThatThrownBy(() -> CompactJson.load(new StringReader(json.replace("\"k99\"", "\"k0\""))))
+                .isInstanceOf(JsonSyntaxException.class)
+                .hasMessage("duplicate key: k0");
+    }
+
+    /**
+     * @return JSON with an object having 100 members and 1000 objects with different names
+     */
+    static String dictionaryJson() {
+        StringBuilder json = new StringBuilder("{\"dictionary\": {");
+        for (int i = 0; i < 100; i++) {
+            json.append(i == 0 ? "" : ", ").append("\"k").append(i).append("\": ").append(i);
+        }
+        json.append("}, \"records\": [");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i == 0 ? "" : ", ").append("{\"id").append(i).append("\": ").append(i).append(", \"x\": 1}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Asserts that duplicate keys and non-object content are rejected.
+     */
+    @Test
+    void invalidContent() {
+        assertThatThrownBy(() -> CompactJson.load(new StringReader("{\"a\": 1, \"b\": {\"a\": 2, \"a\": 3}}")))
+                .isInstanceOf(JsonSyntaxException.class)
+                .hasMessage("duplicate key: a");
+        assertThatThrownBy(() -> CompactJson.load(new StringReader("[1, 2]")))
+                .isInstanceOf(JsonSyntaxException.class);
+    }
+}
@@ -0,0 +1,75 @@
+package de.tautenhahn.easydata.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tautenhahn.easydata.AccessibleData;
+import de.tautenhahn.easydata.DataIntoTemplateBase;
+
+
+/**
+ * Unit tests for memory mapped JSON data.
+ *
+ * @author TT
+ */
+class TestMappedJson extends DataIntoTemplateBase {
+
+    private static final String JSON = """
+            {"name": "Grüße \\"quoted\\" \\u00e4\\n", "numbers": [1, -2.5, 3e2, 0],
+             "nested": {"empty": {}, "none": [], "flags": [true, false, null], "deeper": [[1], {"x": "[{"}]},
+             unquoted: "ok"}
+            """;
+
+    /**
+     * Asserts that the views equal the data read by Gson and templates produce the same output.
+     *
+     * @param dir temporary folder for the JSON file
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void sameAsGson(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.json");
+        Files.writeString(file, JSON, StandardCharsets.UTF_8);
+        Map<String, Object> systemUnderTest = MappedJson.load(file);
+        Object expected = AccessibleData.byJsonContent(JSON).getData();
+
+        assertThat(systemUnderTest).isEqualTo(expected);
+        assertThat(systemUnderTest.get("name")).isEqualTo("Grüße \"quoted\" ä\n");
+        assertThat(systemUnderTest.keySet()).isEqualTo(((Map<?, ?>) expected).keySet());
+        assertThat(((List<?>) systemUnderTest.get("numbers")).get(2)).isEqualTo(300.0);
+
+        String template = "{@=name}: {@FOR no:numbers ASCENDING}{@=no} {@/FOR}{@=nested.deeper.1.x}"
+                + "{@FOR key:nested.keys}{@=key}{@/FOR} {@=numbers.1}";
+        assertThat(doExpand(template, AccessibleData.byBean(systemUnderTest), '{', '@', '}'))
+                .isEqualTo(doExpand(template, AccessibleData.byJsonContent(JSON), '{', '@', '}'));
+    }
+
+    /**
+     * Asserts that values are decoded only when accessed while the structure must be valid.
+     *
+     * @param dir temporary folder for the JSON file
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void decodeOnAccess(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.json");
+        Files.writeString(file, "{\"used\": [1, 2], \"unused\": {\"a\": 12x}}", StandardCharsets.UTF_8);
+        Map<String, Object> systemUnderTest = MappedJson.load(file);
+        assertThat(systemUnderTest.get("used")).isEqualTo(List.of(1.0, 2.0));
+        Map<?, ?> unused = (Map<?, ?>) systemUnderTest.get("unused");
+        assertThatThrownBy(unused::toString).hasMessage("invalid JSON at byte 33");
+
+        Files.writeString(file, "{\"a\": [1, 2}", StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> MappedJson.load(file)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,96 @@
+package de.tautenhahn.easydata.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.MalformedJsonException;
+
+
+/**
+ * Unit tests for parsing parts of a JSON array or JSON Lines in parallel.
+ *
+ * @author TT
+ */
+class TestParallelJsonLoader {
+
+    private static final String RECORD = "{\"id\": %d, \"text\": \"comma, bracket ] brace } quote \\\" end\","
+            + " \"nested\": [{\"a\": [1, 2]}, \"x,y\"]}";
+
+    /**
+     * Asserts that an array split into many small parts is read as by Gson.
+     *
+     * @param dir temporary folder for the JSON file
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void sameAsGson(@TempDir Path dir) throws IOException {
+        List<String> records = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            records.add(String.format(RECORD, i));
+        }
+        String json = " [" + String.join(",\n", records) + "]\n";
+        Path file = dir.resolve("data.json");
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+        ForkJoinPool pool = new ForkJoinPool(3); // NOPMD concurrency is what we test
+        try {
+            List<Object> systemUnderTest = ParallelJsonLoader.load(file, pool, 100);
+            assertThat(systemUnderTest).hasSize(200).isEqualTo(new Gson().fromJson(json, List.class));
+
+            Path lines = dir.resolve("data.jsonl");
+            Files.writeString(lines, String.join("\n", records) + "\n\n", StandardCharsets.UTF_8);
+            assertThat(ParallelJsonLoader.load(lines, pool, 100)).isEqualTo(systemUnderTest);
+            assertThat(ParallelJsonLoader.load(lines, pool)).isEqualTo(systemUnderTest);
+        } finally {
+            pool.shutdown(); // NOPMD see above
+        }
+    }
+
+    /**
+     * Asserts that empty input gives an empty list and syntax errors are reported.
+     *
+     * @param dir temporary folder for the JSON file
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void emptyOrBroken(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.json");
+        Files.writeString(file, "  [ ] ", StandardCharsets.UTF_8);
+        assertThat(ParallelJsonLoader.load(file)).isEmpty();
+        Files.writeString(file, "", StandardCharsets.UTF_8);
+        assertThat(ParallelJsonLoader.load(file)).isEmpty();
+        Files.writeString(file, "[{\"a\": 1}, {\"a\" 2}]", StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> ParallelJsonLoader.load(file)).isInstanceOf(MalformedJsonException.class);
+        Files.writeString(file, "[{\"a\": 1}, {\"a\": 2}", StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> ParallelJsonLoader.load(file)).isInstanceOf(IOException.class);
+        Files.writeString(file, "{\"a\": 1}\n{\"b\": 2}", StandardCharsets.UTF_8);
+        assertThat(ParallelJsonLoader.load(file)).isEqualTo(List.of(Map.of("a", 1.0), Map.of("b", 2.0)));
+    }
+
+    /**
+     * Asserts that JSON Lines whose lines are arrays are not mistaken for one array.
+     *
+     * @param dir temporary folder for the JSON file
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void linesOfArrays(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.jsonl");
+        Files.writeString(file, "[1,2]\n[3,4]\n", StandardCharsets.UTF_8);
+        assertThat(ParallelJsonLoader.load(file)).isEqualTo(List.of(List.of(1.0, 2.0), List.of(3.0, 4.0)));
+        Files.writeString(file, " [[1,2], \"]\"]  \n", StandardCharsets.UTF_8);
+        assertThat(ParallelJsonLoader.load(file)).isEqualTo(List.of(List.of(1.0, 2.0), "]"));
+    }
+}
@@ -0,0 +1,89 @@
+package de.tautenhahn.easydata.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonSyntaxException;
+
+import de.tautenhahn.easydata.AccessibleData;
+import de.tautenhahn.easydata.CompiledTemplate;
+import de.tautenhahn.easydata.DataIntoTemplateBase;
+
+
+/**
+ * Unit tests for reading only the addressed parts of JSON data.
+ *
+ * @author TT
+ */
+class TestProjectingJsonLoader extends DataIntoTemplateBase {
+
+    /**
+     * Asserts that templates render the same output with data reduced to the paths they read.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void sameResultAsCompleteLoading() throws IOException {
+        String[] templates = {"{@DEFINE line(_f, _n)}{@SET last=_f.city}{@=_n}:{@=_f.city}"
+                + "{@IF _f.distance}/{@=VALUE}{@ELSE}-{@/IF}{@/DEFINE}{@REPLACEMENT Berlin}BER{@/REPLACEMENT}"
+                + "{@FOR name:friends.keys ASCENDING}{@=name}{@/FOR} {@FOR fr:friends.values DESCENDING distance}"
+                + "{@line fr Name}{@DELIM}, {@/FOR} {@=last}",
+                "{@MARKUP_ONLY}\n {@FOR ho:Hobbys}\n{@FOR hi:Hobbys UNIQUE}{@IF ho == hi}{@=hi}{@/IF}{@/FOR}{@/FOR}\n"
+                        + "{@/MARKUP_ONLY}{@FOR x:noSuchList}never{@/FOR}{@INDENT}a\nb{@VALUE}  {@/INDENT}",
+                "{@IF Address}{@=VALUE.City}{@/IF} {@=Hobbys.1} {@=SIZE(children)} {@=Address.Street.x}"
+                        + " {@=VALUE_READ_MISSES}"};
+        AccessibleData complete = getData("/data.json");
+        for (String template : templates) {
+            CompiledTemplate compiled = CompiledTemplate.compile(new StringReader(template), '{', '@', '}');
+            Set<String> paths = compiled.getReferencedPaths().orElseThrow();
+            try (Reader json = new InputStreamReader(getClass().getResourceAsStream("/data.json"),
+                                                     StandardCharsets.UTF_8)) {
+                AccessibleData projected = AccessibleData.byBean(ProjectingJsonLoader.load(json, paths));
+                assertThat(render(compiled, projected)).isEqualTo(render(compiled, complete));
+            }
+        }
+    }
+
+    /**
+     * Asserts that values not addressed are skipped and array elements keep their indexes.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void skipUnaddressedValues() throws IOException {
+        String json = "{title: \"x\", list: [{id: 1, big: [1, 2]}, {id: 2, more: {a: 1}}, 3], rest: {deep: [[1]]}}";
+        assertThat(ProjectingJsonLoader.load(new StringReader(json), List.of("list.*.id")))
+                .isEqualTo(Map.of("list", List.of(Map.of("id", 1.0), Map.of("id", 2.0), 3.0)));
+        assertThat(ProjectingJsonLoader.load(new StringReader(json), List.of("list.1", "list.*.big", "title")))
+                .isEqualTo(Map.of("title", "x", "list", List.of(Map.of("big", List.of(1.0, 2.0)),
+                                                                 Map.of("id", 2.0, "more", Map.of("a", 1.0)), 3.0)));
+        assertThat(ProjectingJsonLoader.load(new StringReader(json), List.of("list.1.id", "rest.deep.0")))
+                .isEqualTo(Map.of("list", Arrays.asList(null, Map.of("id", 2.0), null),
+                                  "rest", Map.of("deep", List.of(List.of(1.0)))));
+        assertThat(ProjectingJsonLoader.load(new StringReader(json), List.of())).isEmpty();
+    }
+
+    /**
+     * Asserts that documents which are no JSON object and duplicate keys are rejected.
+     */
+    @Test
+    void invalidContent() {
+        assertThatThrownBy(() -> ProjectingJsonLoader.load(new StringReader("[1, 2]"), List.of("*")))
+                .isInstanceOf(JsonSyntaxException.class);
+        assertThatThrownBy(() -> ProjectingJsonLoader.load(new StringReader("{a: {b: 1}, a: {b: 2}}"), List.of("a.b")))
+                .isInstanceOf(JsonSyntaxException.class)
+                .hasMessage("duplicate key: a");
+    }
+}
@@ -0,0 +1,107 @@
+package de.tautenhahn.easydata.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tautenhahn.easydata.AccessibleData;
+import de.tautenhahn.easydata.DataIntoTemplateBase;
+
+
+/**
+ * Unit tests for binary snapshots of data.
+ *
+ * @author TT
+ */
+class TestSnapshot extends DataIntoTemplateBase {
+
+    /**
+     * Asserts that data read from a snapshot equals the original data and renders the same output.
+     *
+     * @param dir temporary folder for the snapshot
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void sameAsOriginal(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("cv.snapshot");
+        Path resources = Paths.get("src", "test", "resources");
+        AccessibleData original = AccessibleData.byJsonPath(resources.resolve("cv.json").toString());
+        Snapshot.write((Map<?, ?>) original.getData(), file);
+        Map<String, Object> systemUnderTest = Snapshot.read(file);
+        assertThat(systemUnderTest).isEqualTo(original.getData());
+
+        String template = Files.readString(resources.resolve("cv_template.tex"), StandardCharsets.UTF_8);
+        assertThat(doExpand(template, AccessibleData.byBean(systemUnderTest), '<', '@', '>'))
+                .isEqualTo(doExpand(template, original, '<', '@', '>'));
+
+        Snapshot.write(Map.of("array", new int[] {1, 2}, "list", List.of("Grüße", true), "none", Map.of()), file);
+        assertThat(Snapshot.read(file)).isEqualTo(Map.of("array", List.of(1.0, 2.0), "list", List.of("Grüße", true),
+                                                          "none", Map.of()));
+    }
+
+    /**
+     * Asserts that objects with many members and many different member names are read back as well.
+     *
+     * @param dir temporary folder for the snapshot
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void dictionaries(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("dictionaries.snapshot");
+        Object original = AccessibleData.byJsonContent(TestCompactJson.dictionaryJson()).getData();
+        Snapshot.write((Map<?, ?>) original, file);
+        assertThat(Snapshot.read(file)).isEqualTo(original);
+    }
+
+    /**
+     * Asserts that a sequence of values is read back in written order.
+     *
+     * @param dir temporary folder for the snapshot
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void values(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("values.snapshot");
+        List<Object> values = Arrays.asList("text", 1.5, null, Map.of("list", List.of(true)), Map.of("list", List.of()));
+        Snapshot.writeValues(values, file);
+        Iterator<Object> systemUnderTest = Snapshot.readValues(file);
+        List<Object> result = new ArrayList<>();
+        systemUnderTest.forEachRemaining(result::add);
+        assertThat(result).isEqualTo(values);
+        assertThatThrownBy(systemUnderTest::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    /**
+     * Asserts that unsupported data and invalid files are rejected.
+     *
+     * @param dir temporary folder for the snapshot
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void invalidContent(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.snapshot");
+        assertThatThrownBy(() -> Snapshot.write(Map.of("file", file), file))
+                .isInstanceOf(IllegalArgumentException.class);
+        Files.writeString(file, "{\"json\": true}", StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> Snapshot.read(file)).isInstanceOf(IOException.class);
+
+        Snapshot.write(Map.of("text", "some text"), file);
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 2));
+        assertThatThrownBy(() -> Snapshot.read(file)).isInstanceOf(IOException.class).hasMessageContaining("truncated");
+    }
+}
@@ -0,0 +1,95 @@
+package de.tautenhahn.easydata.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.tautenhahn.easydata.AccessibleData;
+import de.tautenhahn.easydata.AccessibleData.ListMode;
+import de.tautenhahn.easydata.DataIntoTemplateBase;
+import de.tautenhahn.easydata.ResolverException;
+
+
+/**
+ * Unit tests for reading a JSON array while iterating it.
+ *
+ * @author TT
+ */
+class TestStreamingJsonLoader extends DataIntoTemplateBase {
+
+    private static final String JSON = "{title:\"Export\", export:{count:3, items:[{name:\"a\", size:1},"
+            + " {name:\"b\", size:2.5}, {name:\"c\", sizes:[1, 2]}], footer:\"done\"}, after:{x:true}}";
+
+    /**
+     * Asserts that a template renders the same output as with completely loaded data, including the values
+     * following the streamed array.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void sameResultAsCompleteLoading() throws IOException {
+        String template = "{@=title} {@=export.count}: {@FOR item:export.items}{@=item.name}={@=item.size}"
+                + "{@DELIM}, {@/FOR} {@=export.footer} {@=after.x}";
+        String expected = doExpand(template, AccessibleData.byJsonContent(JSON), '{', '@', '}');
+        assertThat(expected).startsWith("Export 3.0: a=1.0, b=2.5, c=null done true");
+
+        AccessibleData data = AccessibleData.byJsonStream(new StringReader(JSON), "export.items");
+        assertThat(doExpandOnce(template, data, '{', '@', '}')).isEqualTo(expected);
+
+        data = AccessibleData.byJsonStream(new StringReader(JSON), "export.items");
+        assertThat(doExpandOnce("{@FOR name:export.items SELECT name}{@=name}{@/FOR}", data, '{', '@', '}'))
+                .isEqualTo("abc\n");
+    }
+
+    /**
+     * Asserts that elements are read only when requested and the array cannot be iterated twice.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void readWhileIterating() throws IOException {
+        Map<String, Object> data = StreamingJsonLoader.load(new StringReader("{list:[1, 2, {broken"), "list");
+        Collection<?> list = (Collection<?>) data.get("list");
+        assertThat(list).hasToString("streamed array list");
+        Iterator<?> elements = list.iterator();
+        assertThat(elements.next()).isEqualTo(1.0);
+        assertThat(elements.next()).isEqualTo(2.0);
+        assertThatThrownBy(elements::next).isInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(list::iterator).isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Asserts that asking for the size of the streamed array gives a comprehensive error message.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void noSize() throws IOException {
+        AccessibleData data = AccessibleData.byBean(StreamingJsonLoader.load(new StringReader(JSON), "export.items"));
+        assertThatThrownBy(() -> data.getString("SIZE(export.items)")).isInstanceOf(ResolverException.class)
+                .hasMessageContaining("streamed array export.items cannot be sized");
+        assertThatThrownBy(() -> data.getCollection("export.items", ListMode.KEYS))
+                .isInstanceOf(ResolverException.class);
+    }
+
+    /**
+     * Asserts that the whole document is read if there is no array at the specified path.
+     *
+     * @throws IOException to appear in test protocol
+     */
+    @Test
+    void noArrayToStream() throws IOException {
+        assertThat(StreamingJsonLoader.load(new StringReader(JSON), "export.count"))
+                .isEqualTo(AccessibleData.byJsonContent(JSON).getData());
+        assertThat(StreamingJsonLoader.load(new StringReader(JSON), "title.items"))
+                .isEqualTo(AccessibleData.byJsonContent(JSON).getData());
+    }
+}